@@ -0,0 +1,40 @@
+package com.example.filedrive.benchmark;
+
+import com.example.filedrive.model.FileChunk;
+import com.example.filedrive.repository.FileChunkRepository;
+import com.example.filedrive.service.FileChunkService;
+import com.example.filedrive.service.PartStatusWriter;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * Minimal context for the persistence benchmarks: the JPA and JDBC stack on H2 in MySQL mode
+ * (see application-benchmark.properties) plus the services under test, without web, security or AWS.
+ */
+@SpringBootConfiguration
+@ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+        JdbcTemplateAutoConfiguration.class, HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+@EntityScan(basePackageClasses = FileChunk.class)
+@EnableJpaRepositories(basePackageClasses = FileChunkRepository.class)
+@Import({FileChunkService.class, PartStatusWriter.class})
+public class BenchmarkJpaConfig {
+
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(BenchmarkJpaConfig.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .logStartupInfo(false)
+                .run();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.filedrive.mapper;
+
+import com.example.filedrive.dto.FileMetadataResponse;
+import com.example.filedrive.model.FileMetadata;
+import com.example.filedrive.model.FileStatus;
+import com.example.filedrive.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity to DTO list mapping as done for file listings, from 10k to 1M entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EntityDTOMapperBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int entities;
+
+    private final EntityDTOMapper mapper = new EntityDTOMapper();
+    private List<FileMetadata> files;
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId("benchmark-user");
+        user.setName("Benchmark User");
+        user.setEmail("benchmark@example.com");
+
+        Date now = new Date();
+        files = new ArrayList<>(entities);
+        for (int i = 0; i < entities; i++) {
+            String fileId = UUID.randomUUID().toString();
+            FileMetadata fileMetadata = new FileMetadata();
+            fileMetadata.setFileId(fileId);
+            fileMetadata.setUser(user);
+            fileMetadata.setFileName("document-" + i + ".pdf");
+            fileMetadata.setFileType("application/pdf");
+            fileMetadata.setFileSize(1024L * (i % 4096 + 1));
+            fileMetadata.setFilePath("user/benchmark-user/" + fileId);
+            fileMetadata.setS3Url("https://filedrive-benchmark.s3.amazonaws.com/user/benchmark-user/" + fileId);
+            fileMetadata.setStatus(FileStatus.UPLOADED.toString());
+            fileMetadata.setLastModifiedData(now);
+            files.add(fileMetadata);
+        }
+    }
+
+    @Benchmark
+    public List<FileMetadataResponse> toFileMetadataDTOList() {
+        return mapper.toFileMetadataDTOList(files);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.filedrive.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileService.extractIdsFromUrl on the S3 URLs the upload-status callback receives, with and
+ * without the "_suffix" that marks a duplicate file name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtractIdsFromUrlBenchmark {
+
+    private static final int URLS = 1024;
+
+    private String[] urls;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        urls = new String[URLS];
+        for (int i = 0; i < URLS; i++) {
+            String fileId = UUID.randomUUID().toString();
+            urls[i] = "https://filedrive-benchmark.s3.amazonaws.com/user/benchmark-user-" + (i % 64) + "/"
+                    + (i % 2 == 0 ? fileId : fileId + "_holiday-photos-" + i + ".zip");
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> extractIdsFromUrl() {
+        next = (next + 1) & (URLS - 1);
+        return FileService.extractIdsFromUrl(urls[next]);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.benchmark.BenchmarkJpaConfig;
+import com.example.filedrive.dto.MultipartUploadCompleteRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Part registration and CompleteMultipartUpload part listing for uploads of 100 to 10,000 parts,
+ * against H2 in MySQL mode. Parts arrive in random order, as they do from parallel clients.
+ * Absolute numbers are H2's; use them to compare code paths and catch regressions, not to size MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FileChunkServiceBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int parts;
+
+    private ConfigurableApplicationContext context;
+    private FileChunkService fileChunkService;
+    private PartStatusWriter partStatusWriter;
+    private List<MultipartUploadCompleteRequest.ChunkDetail> shuffledParts;
+    private String completedFileId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkJpaConfig.start();
+        fileChunkService = context.getBean(FileChunkService.class);
+        partStatusWriter = context.getBean(PartStatusWriter.class);
+
+        shuffledParts = new ArrayList<>(parts);
+        for (int chunkNumber = 1; chunkNumber <= parts; chunkNumber++) {
+            MultipartUploadCompleteRequest.ChunkDetail part = new MultipartUploadCompleteRequest.ChunkDetail();
+            part.setChunkNumber(chunkNumber);
+            part.setETag("\"" + UUID.randomUUID().toString().replace("-", "") + "\"");
+            shuffledParts.add(part);
+        }
+        Collections.shuffle(shuffledParts, new Random(42));
+
+        completedFileId = newUpload();
+        partStatusWriter.submit(completedFileId, shuffledParts).join();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    String newUpload() {
+        String fileId = UUID.randomUUID().toString();
+        fileChunkService.saveUploadState(fileId, "upload-" + fileId, "benchmark-user", "benchmark.bin",
+                "application/octet-stream", parts * 5L * 1024 * 1024, parts);
+        return fileId;
+    }
+
+    /**
+     * A fresh upload for every invocation of the registration benchmarks, removed afterwards;
+     * neither step is measured.
+     */
+    @State(Scope.Thread)
+    public static class FreshUpload {
+
+        private FileChunkServiceBenchmark benchmark;
+        String fileId;
+
+        @Setup(Level.Invocation)
+        public void create(FileChunkServiceBenchmark benchmark) {
+            this.benchmark = benchmark;
+            fileId = benchmark.newUpload();
+        }
+
+        @TearDown(Level.Invocation)
+        public void remove() {
+            benchmark.fileChunkService.removeUploadState(fileId);
+        }
+    }
+
+    // One report per part, as sent concurrently through the single-part status endpoint; the writer coalesces them
+    @Benchmark
+    public boolean registerPartsOneByOne(FreshUpload upload) {
+        List<CompletableFuture<Boolean>> reports = new ArrayList<>(shuffledParts.size());
+        for (MultipartUploadCompleteRequest.ChunkDetail part : shuffledParts) {
+            reports.add(partStatusWriter.submit(upload.fileId, List.of(part)));
+        }
+        reports.forEach(CompletableFuture::join);
+        return fileChunkService.isUploadComplete(upload.fileId);
+    }
+
+    // All parts in one report through the coalescing writer, as sent by the batch status endpoint
+    @Benchmark
+    public boolean registerPartsBatched(FreshUpload upload) {
+        return partStatusWriter.submit(upload.fileId, shuffledParts).join();
+    }
+
+    @Benchmark
+    public List<CompletedPart> getCompletedChunks() {
+        return fileChunkService.getCompletedChunks(completedFileId);
+    }
+}
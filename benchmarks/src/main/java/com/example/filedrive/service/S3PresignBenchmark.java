@@ -0,0 +1,100 @@
+package com.example.filedrive.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * SigV4 presigning cost of S3Service: GET (with and without the download URL cache), PUT, and
+ * UploadPart one at a time and as a 1000-part batch. Signing is local, so no AWS access is needed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3PresignBenchmark {
+
+    private static final Duration EXPIRATION = Duration.ofMinutes(10);
+    private static final int KEYS = 4096;
+    private static final int BATCH_PARTS = 1000;
+    private static final String UPLOAD_ID = "2~benchmarkUploadIdZ1Y2X3W4V5U6T7S8R9Q0";
+
+    private ExecutorService presignExecutor;
+    private S3Service s3Service;
+    private S3Service uncachedS3Service;
+    private String[] keys;
+    private List<Integer> batchParts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        presignExecutor = Executors.newFixedThreadPool(4);
+        s3Service = new S3Service("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG/bPxRfiCYEXAMPLEKEY", "us-east-1",
+                "filedrive-benchmark", 10000, "", false, presignExecutor, null, null);
+        // A one-entry cache never hits for rotating keys, so every GET is signed
+        uncachedS3Service = new S3Service("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG/bPxRfiCYEXAMPLEKEY", "us-east-1",
+                "filedrive-benchmark", 1, "", false, presignExecutor, null, null);
+
+        keys = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "user/benchmark-user-" + (i % 64) + "/" + UUID.randomUUID() + "_report-" + i + ".pdf";
+        }
+        batchParts = IntStream.rangeClosed(1, BATCH_PARTS).boxed().toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        presignExecutor.shutdown();
+    }
+
+    private String nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public String presignGetCached() {
+        return s3Service.generatePresignedDownloadUrl(keys[0], EXPIRATION);
+    }
+
+    @Benchmark
+    public String presignGet() {
+        return uncachedS3Service.generatePresignedDownloadUrl(nextKey(), EXPIRATION);
+    }
+
+    @Benchmark
+    public String presignPut() {
+        return s3Service.generatePresignedUploadUrl(nextKey(), EXPIRATION);
+    }
+
+    @Benchmark
+    public String presignUploadPart() {
+        return s3Service.generatePresignedUploadUrlForChunk(nextKey(), UPLOAD_ID, (next % 10000) + 1, EXPIRATION);
+    }
+
+    // Reported per part, to compare directly with presignUploadPart
+    @Benchmark
+    @OperationsPerInvocation(BATCH_PARTS)
+    public List<String> presignUploadPartBatch() {
+        return s3Service.generatePresignedUploadUrlsForChunks(nextKey(), UPLOAD_ID, batchParts, EXPIRATION);
+    }
+}
@@ -3,9 +3,11 @@ package com.example.filedrive;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableJpaRepositories(basePackages = "com.example.filedrive.repository")
+@EnableScheduling
 public class FileDriveApplication {
 
     public static void main(String[] args) {
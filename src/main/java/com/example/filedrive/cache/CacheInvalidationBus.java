@@ -0,0 +1,16 @@
+package com.example.filedrive.cache;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidations between application instances. Each cache is identified by a region
+ * name; a published invalidation must reach the subscribers of that region on every instance,
+ * including the publishing one.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(String region, Collection<String> keys);
+
+    void subscribe(String region, Consumer<Collection<String>> listener);
+}
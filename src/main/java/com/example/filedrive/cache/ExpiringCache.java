@@ -0,0 +1,128 @@
+package com.example.filedrive.cache;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, lock-free cache whose entries carry their own expiry time.
+ * When the bound is exceeded, expired entries are purged first and then the
+ * entries closest to expiry are dropped until the cache is back under 90% capacity.
+ */
+public class ExpiringCache<K, V> {
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.value();
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+        if (entries.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void invalidateIf(Predicate<? super K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        // Only one thread trims at a time; concurrent writers may briefly overshoot the bound
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            entries.entrySet().removeIf(e -> {
+                boolean expired = e.getValue().isExpired(now);
+                if (expired) {
+                    evictions.increment();
+                }
+                return expired;
+            });
+
+            int target = maxEntries - maxEntries / 10;
+            int excess = entries.size() - target;
+            if (excess > 0) {
+                entries.entrySet().stream()
+                        .sorted(Comparator.comparingLong(e -> e.getValue().expiresAtMillis()))
+                        .limit(excess)
+                        .map(Map.Entry::getKey)
+                        .toList()
+                        .forEach(key -> {
+                            if (entries.remove(key) != null) {
+                                evictions.increment();
+                            }
+                        });
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+        boolean isExpired(long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+}
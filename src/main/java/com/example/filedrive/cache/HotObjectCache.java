@@ -0,0 +1,347 @@
+package com.example.filedrive.cache;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Whole-object copies of frequently downloaded objects on local disk, bounded by total bytes.
+ * Eviction is LRU; admission follows TinyLFU: an object is only fetched into the cache once it has
+ * been requested min-frequency times recently, and only if it is requested more often than the
+ * entries it would push out.
+ * <p>
+ * Fills run in the background, one per key at a time, and are cut off once they pass
+ * max-object-bytes, whatever size the object was expected to have. A miss never waits for a fill:
+ * the caller reads the object from storage, and later requests hit the copy once it is complete.
+ * <p>
+ * Objects are immutable under their key, so entries only go away through eviction or
+ * {@link #invalidate} when the object is deleted. Deletions on other instances only arrive through
+ * a broadcasting {@link CacheInvalidationBus}; the default local bus does not deliver them, and the
+ * copy then stays until it is evicted. An entry's file may be deleted by an eviction at
+ * any time; callers open it once and fall back to the storage backend when it is already gone.
+ */
+public class HotObjectCache {
+
+    public static final String INVALIDATION_REGION = "hot-objects";
+
+    private static final String FILE_SUFFIX = ".obj";
+
+    public record Entry(Path file, long length, String eTag, Instant lastModified) {
+    }
+
+    public record Fill(String eTag, Instant lastModified) {
+    }
+
+    /**
+     * Writes the whole object to target and returns its validators. Writes past max-object-bytes
+     * fail with an IOException.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        Fill load(OutputStream target) throws IOException;
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+    private final long maxObjectBytes;
+    private final int minFrequency;
+    private final FrequencySketch sketch;
+    private final Executor fillExecutor;
+
+    // Access-ordered, so iteration starts at the least recently used entry; guarded by this
+    private final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+    // Marker of the running fill per key; invalidate removes it to have the fill's copy thrown away
+    private final ConcurrentHashMap<String, Object> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder collapsedFills = new LongAdder();
+    private final LongAdder abortedFills = new LongAdder();
+    private final LongAdder rejectedAdmissions = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+
+    /**
+     * A null dir disables the cache; {@link #get} then always returns null.
+     */
+    public HotObjectCache(Path dir, long maxBytes, long maxObjectBytes, int minFrequency, int trackedKeys, Executor fillExecutor) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.maxObjectBytes = Math.min(maxObjectBytes, maxBytes);
+        this.minFrequency = minFrequency;
+        this.sketch = dir != null ? new FrequencySketch(trackedKeys) : null;
+        this.fillExecutor = fillExecutor;
+
+        if (dir != null) {
+            // Nothing survives a restart: the index is in memory only
+            try {
+                Files.createDirectories(dir);
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + FILE_SUFFIX)) {
+                    for (Path file : files) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to initialize hot object cache: " + e.getMessage());
+                throw new RuntimeException("Could not initialize hot object cache under " + dir + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * Returns the cached copy of key, or null when the caller should read the object from storage
+     * itself. On a miss that qualifies for admission, a background fill through loader is started
+     * unless one is already running; size is only the expected size and does not bound the fill.
+     */
+    public Entry get(String key, long size, Loader loader) {
+        if (dir == null) {
+            return null;
+        }
+
+        sketch.increment(key);
+        synchronized (this) {
+            Entry entry = index.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+        }
+        misses.increment();
+
+        if (inFlight.containsKey(key)) {
+            collapsedFills.increment();
+            return null;
+        }
+        if (!admits(key, size)) {
+            rejectedAdmissions.increment();
+            return null;
+        }
+
+        Object fill = new Object();
+        if (inFlight.putIfAbsent(key, fill) != null) {
+            collapsedFills.increment();
+            return null;
+        }
+        try {
+            fillExecutor.execute(() -> fill(key, fill, loader));
+        } catch (RejectedExecutionException e) {
+            // Fill queue is full; a later miss can try again
+            inFlight.remove(key, fill);
+            rejectedAdmissions.increment();
+        }
+        return null;
+    }
+
+    private void fill(String key, Object fill, Loader loader) {
+        fills.increment();
+        Path target = dir.resolve(UUID.randomUUID() + FILE_SUFFIX);
+        try {
+            Fill result;
+            try (OutputStream out = new BoundedOutputStream(Files.newOutputStream(target), maxObjectBytes)) {
+                result = loader.load(out);
+            }
+            Entry entry = new Entry(target, Files.size(target), result.eTag(), result.lastModified());
+            // An invalidation that ran while we were filling removed our in-flight marker; the copy
+            // may be of the deleted object, so throw it away
+            if (inFlight.remove(key, fill)) {
+                insert(key, entry);
+            } else {
+                deleteQuietly(target);
+            }
+        } catch (ObjectTooLargeException e) {
+            abortedFills.increment();
+            inFlight.remove(key, fill);
+            deleteQuietly(target);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error filling hot object cache for " + key + ": " + e.getMessage());
+            inFlight.remove(key, fill);
+            deleteQuietly(target);
+        }
+    }
+
+    public void invalidate(String key) {
+        if (dir == null) {
+            return;
+        }
+
+        inFlight.remove(key);
+        Entry removed;
+        synchronized (this) {
+            removed = index.remove(key);
+            if (removed != null) {
+                currentBytes -= removed.length();
+            }
+        }
+        if (removed != null) {
+            deleteQuietly(removed.file());
+        }
+    }
+
+    /**
+     * Records bytes sent to clients from cached copies, i.e. reads the storage backend was spared.
+     */
+    public void recordBytesServed(long bytes) {
+        bytesServed.add(bytes);
+    }
+
+    /**
+     * Doorkeeper and TinyLFU filter: the candidate must have been seen often enough, and must be
+     * more popular than every least-recently-used entry that would be evicted to make room for it.
+     */
+    private boolean admits(String key, long size) {
+        if (size > maxObjectBytes) {
+            return false;
+        }
+        int frequency = sketch.frequency(key);
+        if (frequency < minFrequency) {
+            return false;
+        }
+
+        synchronized (this) {
+            long excess = currentBytes + size - maxBytes;
+            Iterator<Map.Entry<String, Entry>> victims = index.entrySet().iterator();
+            while (excess > 0 && victims.hasNext()) {
+                Map.Entry<String, Entry> victim = victims.next();
+                if (sketch.frequency(victim.getKey()) >= frequency) {
+                    return false;
+                }
+                excess -= victim.getValue().length();
+            }
+        }
+        return true;
+    }
+
+    private void insert(String key, Entry entry) {
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry previous = index.put(key, entry);
+            if (previous != null) {
+                currentBytes -= previous.length();
+                evicted.add(previous.file());
+            }
+            currentBytes += entry.length();
+
+            Iterator<Map.Entry<String, Entry>> eldest = index.entrySet().iterator();
+            while (currentBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> victim = eldest.next();
+                if (victim.getKey().equals(key)) {
+                    break;
+                }
+                eldest.remove();
+                currentBytes -= victim.getValue().length();
+                evicted.add(victim.getValue().file());
+                evictions.increment();
+            }
+        }
+        evicted.forEach(HotObjectCache::deleteQuietly);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Error deleting hot object cache file " + file + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getFillCount() {
+        return fills.sum();
+    }
+
+    public long getCollapsedFillCount() {
+        return collapsedFills.sum();
+    }
+
+    public long getRejectedAdmissionCount() {
+        return rejectedAdmissions.sum();
+    }
+
+    public long getAbortedFillCount() {
+        return abortedFills.sum();
+    }
+
+    public long getBytesServed() {
+        return bytesServed.sum();
+    }
+
+    private static final class ObjectTooLargeException extends IOException {
+        ObjectTooLargeException(long limit) {
+            super("Object is larger than " + limit + " bytes");
+        }
+    }
+
+    // Fails the write that would take the copy past limit, so an oversized object is never fully read
+    private static final class BoundedOutputStream extends FilterOutputStream {
+
+        private final long limit;
+        private long written;
+
+        BoundedOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            reserve(length);
+            out.write(bytes, offset, length);
+        }
+
+        private void reserve(int length) throws ObjectTooLargeException {
+            if (written + length > limit) {
+                throw new ObjectTooLargeException(limit);
+            }
+            written += length;
+        }
+    }
+}
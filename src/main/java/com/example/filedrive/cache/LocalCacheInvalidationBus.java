@@ -0,0 +1,33 @@
+package com.example.filedrive.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Single-instance bus: invalidations are delivered synchronously to the listeners of this JVM only.
+ * Deployments with several instances replace it with a broadcasting implementation.
+ */
+public class LocalCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final Map<String, List<Consumer<Collection<String>>>> listeners = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String region, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        for (Consumer<Collection<String>> listener : listeners.getOrDefault(region, List.of())) {
+            listener.accept(keys);
+        }
+    }
+
+    @Override
+    public void subscribe(String region, Consumer<Collection<String>> listener) {
+        listeners.computeIfAbsent(region, r -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.filedrive.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * {@link ExpiringCache} that loads missing entries itself. Concurrent misses on the same key are
+ * collapsed into a single load (single-flight); the other callers wait for its result. Null results
+ * are returned but never cached.
+ */
+public class ReadThroughCache<K, V> {
+
+    private final ExpiringCache<K, V> cache;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder collapsedLoads = new LongAdder();
+
+    public ReadThroughCache(int maxEntries, long ttlMillis) {
+        this.cache = new ExpiringCache<>(maxEntries);
+        this.ttlMillis = ttlMillis;
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            collapsedLoads.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        loads.increment();
+        try {
+            value = loader.apply(key);
+            if (value != null) {
+                cache.put(key, value, System.currentTimeMillis() + ttlMillis);
+            }
+            // An invalidation that ran while we were loading removed our in-flight marker;
+            // the value may predate that write, so drop it again
+            if (!inFlight.remove(key, load)) {
+                cache.invalidate(key);
+            }
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            inFlight.remove(key, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(K key) {
+        inFlight.remove(key);
+        cache.invalidate(key);
+    }
+
+    public void clear() {
+        inFlight.clear();
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getCollapsedLoadCount() {
+        return collapsedLoads.sum();
+    }
+}
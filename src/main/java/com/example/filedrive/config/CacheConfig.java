@@ -0,0 +1,39 @@
+package com.example.filedrive.config;
+
+import com.example.filedrive.cache.CacheInvalidationBus;
+import com.example.filedrive.cache.HotObjectCache;
+import com.example.filedrive.cache.LocalCacheInvalidationBus;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+
+@Configuration
+public class CacheConfig {
+
+    // Multi-instance deployments define their own bus bean (e.g. backed by pub/sub) to replace this one
+    @Bean
+    @ConditionalOnMissingBean(CacheInvalidationBus.class)
+    public CacheInvalidationBus cacheInvalidationBus() {
+        return new LocalCacheInvalidationBus();
+    }
+
+    @Bean
+    public HotObjectCache hotObjectCache(CacheInvalidationBus cacheInvalidationBus,
+                                         @Value("${application.download.hot-cache.enabled:false}") boolean enabled,
+                                         @Value("${application.download.hot-cache.dir:./filedrive-hot-cache}") String dir,
+                                         @Value("${application.download.hot-cache.max-bytes:10737418240}") long maxBytes,
+                                         @Value("${application.download.hot-cache.max-object-bytes:536870912}") long maxObjectBytes,
+                                         @Value("${application.download.hot-cache.min-frequency:2}") int minFrequency,
+                                         @Value("${application.download.hot-cache.tracked-keys:65536}") int trackedKeys,
+                                         @Qualifier("hotCacheFillExecutor") ExecutorService fillExecutor) {
+        HotObjectCache hotObjectCache = new HotObjectCache(enabled ? Paths.get(dir).toAbsolutePath().normalize() : null,
+                maxBytes, maxObjectBytes, minFrequency, trackedKeys, fillExecutor);
+        cacheInvalidationBus.subscribe(HotObjectCache.INVALIDATION_REGION, keys -> keys.forEach(hotObjectCache::invalidate));
+        return hotObjectCache;
+    }
+}
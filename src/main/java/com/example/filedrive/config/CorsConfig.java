@@ -27,6 +27,8 @@ public class CorsConfig {
                         .allowedOrigins(allowedOrigins)
                         .allowedMethods(allowedMethods)
                         .allowedHeaders("*")
+                        // Browsers must read part ETags to complete multipart uploads against the local storage engine
+                        .exposedHeaders("ETag")
                         .allowCredentials(true)
                         .maxAge(maxAge);
             }
@@ -0,0 +1,79 @@
+package com.example.filedrive.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${application.presign.threads:4}")
+    private int presignThreads;
+
+    @Value("${application.s3.async.completion-threads:16}")
+    private int s3CompletionThreads;
+
+    @Value("${application.download.hot-cache.fill-threads:2}")
+    private int hotCacheFillThreads;
+
+    @Value("${application.download.hot-cache.fill-queue-capacity:16}")
+    private int hotCacheFillQueueCapacity;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreadsEnabled;
+
+    // Signing is CPU-bound, so this pool stays on platform threads even in virtual-thread mode
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService presignExecutor() {
+        return Executors.newFixedThreadPool(presignThreads, namedDaemonThreads("presign-"));
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService s3CompletionExecutor() {
+        // Completion callbacks block on JDBC, which is what virtual threads are for
+        if (virtualThreadsEnabled) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                return executor;
+            }
+            System.err.println("spring.threads.virtual.enabled is set but this JVM has no virtual threads (Java 21+ required); "
+                    + "using platform threads");
+        }
+        return Executors.newFixedThreadPool(s3CompletionThreads, namedDaemonThreads("s3-completion-"));
+    }
+
+    // Fills copy whole objects, so they get a small pool of their own instead of holding up S3 completions.
+    // A fill that does not fit in the queue is rejected; the cache simply skips it and tries on a later miss.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService hotCacheFillExecutor() {
+        return new ThreadPoolExecutor(hotCacheFillThreads, hotCacheFillThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(hotCacheFillQueueCapacity), namedDaemonThreads("hot-cache-fill-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // The project compiles for Java 17, so the Java 21 factory is looked up at runtime
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
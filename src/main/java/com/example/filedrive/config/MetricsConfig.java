@@ -0,0 +1,205 @@
+package com.example.filedrive.config;
+
+import com.example.filedrive.cache.ExpiringCache;
+import com.example.filedrive.cache.HotObjectCache;
+import com.example.filedrive.cache.ReadThroughCache;
+import com.example.filedrive.repository.FileChunkRepository;
+import com.example.filedrive.search.UserSearchIndex;
+import com.example.filedrive.security.VerifiedTokenCache;
+import com.example.filedrive.service.DatabaseService;
+import com.example.filedrive.service.PendingDeletionService;
+import com.example.filedrive.service.S3EventIngestionService;
+import com.example.filedrive.service.S3Service;
+import com.example.filedrive.service.StaleUploadReaper;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics beyond Spring Boot's defaults. Call latencies come from {@code @Timed} on the services;
+ * everything here reads counters the components already keep, so nothing is added to the hot paths.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder uploadMetrics(FileChunkRepository fileChunkRepository) {
+        return registry -> {
+            UploadSummary summary = new UploadSummary(fileChunkRepository);
+            Gauge.builder("filedrive.multipart.uploads.in_progress", summary, s -> s.current()[0])
+                    .description("Multipart uploads with upload state")
+                    .register(registry);
+            Gauge.builder("filedrive.multipart.parts.received", summary, s -> s.current()[1])
+                    .description("Parts received by the multipart uploads in progress")
+                    .register(registry);
+            Gauge.builder("filedrive.multipart.parts.per_upload", summary, s -> {
+                        long[] current = s.current();
+                        return current[0] == 0 ? 0 : (double) current[1] / current[0];
+                    })
+                    .description("Average parts received per multipart upload in progress")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(DatabaseService databaseService, S3Service s3Service, VerifiedTokenCache verifiedTokenCache,
+                                    HotObjectCache hotObjectCache) {
+        return registry -> {
+            ReadThroughCache<?, ?> metadataCache = databaseService.getMetadataCache();
+            cacheCounters(registry, "file-metadata", metadataCache,
+                    ReadThroughCache::getHitCount, ReadThroughCache::getMissCount, ReadThroughCache::getEvictionCount, ReadThroughCache::size);
+            FunctionCounter.builder("filedrive.cache.loads.collapsed", metadataCache, ReadThroughCache::getCollapsedLoadCount)
+                    .tag("cache", "file-metadata")
+                    .register(registry);
+
+            cacheCounters(registry, "presigned-download", s3Service.getDownloadUrlCache(),
+                    ExpiringCache::getHitCount, ExpiringCache::getMissCount, ExpiringCache::getEvictionCount, ExpiringCache::size);
+
+            cacheCounters(registry, "hot-object", hotObjectCache,
+                    HotObjectCache::getHitCount, HotObjectCache::getMissCount, HotObjectCache::getEvictionCount, HotObjectCache::size);
+            Gauge.builder("filedrive.cache.hot_object.used", hotObjectCache, HotObjectCache::getCurrentBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            Gauge.builder("filedrive.cache.hot_object.hit_ratio", hotObjectCache, cache -> {
+                        long gets = cache.getHitCount() + cache.getMissCount();
+                        return gets == 0 ? 0 : (double) cache.getHitCount() / gets;
+                    })
+                    .register(registry);
+            FunctionCounter.builder("filedrive.cache.hot_object.served", hotObjectCache, HotObjectCache::getBytesServed)
+                    .description("Bytes sent from cached copies instead of the storage backend")
+                    .baseUnit("bytes")
+                    .register(registry);
+            outcomeCounters(registry, "filedrive.cache.hot_object.fills", hotObjectCache, List.of(
+                    new Outcome<>("filled", HotObjectCache::getFillCount),
+                    new Outcome<>("collapsed", HotObjectCache::getCollapsedFillCount),
+                    new Outcome<>("aborted", HotObjectCache::getAbortedFillCount),
+                    new Outcome<>("rejected", HotObjectCache::getRejectedAdmissionCount)));
+
+            FunctionCounter.builder("filedrive.cache.gets", verifiedTokenCache, VerifiedTokenCache::getHitCount)
+                    .tags("cache", "verified-token", "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("filedrive.cache.gets", verifiedTokenCache, VerifiedTokenCache::getMissCount)
+                    .tags("cache", "verified-token", "result", "miss")
+                    .register(registry);
+            Gauge.builder("filedrive.cache.size", verifiedTokenCache, VerifiedTokenCache::size)
+                    .tag("cache", "verified-token")
+                    .register(registry);
+            FunctionCounter.builder("filedrive.auth.tokens.verified", verifiedTokenCache, VerifiedTokenCache::getVerificationCount)
+                    .description("Tokens checked with Firebase (cache misses)")
+                    .register(registry);
+            FunctionCounter.builder("filedrive.auth.tokens.rejected", verifiedTokenCache, VerifiedTokenCache::getRejectionCount)
+                    .description("Tokens rejected as revoked")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder backgroundWorkMetrics(S3EventIngestionService ingestionService, StaleUploadReaper staleUploadReaper,
+                                             PendingDeletionService pendingDeletionService, UserSearchIndex userSearchIndex) {
+        return registry -> {
+            Gauge.builder("filedrive.s3.events.queue.depth", ingestionService, S3EventIngestionService::getQueueDepth)
+                    .register(registry);
+            outcomeCounters(registry, "filedrive.s3.events", ingestionService, List.of(
+                    new Outcome<>("received", S3EventIngestionService::getReceivedCount),
+                    new Outcome<>("deduplicated", S3EventIngestionService::getDeduplicatedCount),
+                    new Outcome<>("rejected", S3EventIngestionService::getRejectedCount),
+                    new Outcome<>("processed", S3EventIngestionService::getProcessedCount),
+                    new Outcome<>("failed", S3EventIngestionService::getFailedCount)));
+
+            outcomeCounters(registry, "filedrive.reaper.uploads", staleUploadReaper, List.of(
+                    new Outcome<>("scanned", StaleUploadReaper::getScannedCount),
+                    new Outcome<>("aborted", StaleUploadReaper::getAbortedCount),
+                    new Outcome<>("orphan_aborted", StaleUploadReaper::getOrphansAbortedCount),
+                    new Outcome<>("reconciled", StaleUploadReaper::getReconciledCount),
+                    new Outcome<>("failed", StaleUploadReaper::getFailureCount)));
+            FunctionCounter.builder("filedrive.reaper.runs", staleUploadReaper, StaleUploadReaper::getRunCount)
+                    .register(registry);
+            Gauge.builder("filedrive.reaper.last_run.duration", staleUploadReaper, StaleUploadReaper::getLastRunDurationMillis)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+
+            Gauge.builder("filedrive.deletions.backlog", pendingDeletionService, PendingDeletionService::getBacklog)
+                    .description("S3 objects queued for deletion")
+                    .register(registry);
+            outcomeCounters(registry, "filedrive.deletions.objects", pendingDeletionService, List.of(
+                    new Outcome<>("enqueued", PendingDeletionService::getEnqueuedCount),
+                    new Outcome<>("deleted", PendingDeletionService::getDeletedCount),
+                    new Outcome<>("failed", PendingDeletionService::getFailedCount)));
+            FunctionCounter.builder("filedrive.deletions.requests", pendingDeletionService, PendingDeletionService::getRequestCount)
+                    .description("DeleteObjects calls")
+                    .register(registry);
+
+            Gauge.builder("filedrive.search.index.size", userSearchIndex, UserSearchIndex::size)
+                    .register(registry);
+            Gauge.builder("filedrive.search.index.ready", userSearchIndex, index -> index.isReady() ? 1 : 0)
+                    .register(registry);
+        };
+    }
+
+    private static <C> void cacheCounters(MeterRegistry registry, String cache, C source,
+                                          ToDoubleFunction<C> hits, ToDoubleFunction<C> misses,
+                                          ToDoubleFunction<C> evictions, ToDoubleFunction<C> size) {
+        FunctionCounter.builder("filedrive.cache.gets", source, hits)
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("filedrive.cache.gets", source, misses)
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("filedrive.cache.evictions", source, evictions)
+                .tag("cache", cache)
+                .register(registry);
+        Gauge.builder("filedrive.cache.size", source, size)
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    private static <T> void outcomeCounters(MeterRegistry registry, String name, T source, List<Outcome<T>> outcomes) {
+        for (Outcome<T> outcome : outcomes) {
+            FunctionCounter.builder(name, source, outcome.count())
+                    .tag("outcome", outcome.name())
+                    .register(registry);
+        }
+    }
+
+    private record Outcome<T>(String name, ToDoubleFunction<T> count) {
+    }
+
+    /**
+     * The three upload gauges are read together on every scrape; one query serves all of them
+     * for a few seconds instead of one query each.
+     */
+    private static final class UploadSummary {
+
+        private static final long MAX_AGE_MILLIS = 5000;
+
+        private final FileChunkRepository fileChunkRepository;
+        private volatile long[] values = new long[2];
+        private volatile long readAt;
+
+        UploadSummary(FileChunkRepository fileChunkRepository) {
+            this.fileChunkRepository = fileChunkRepository;
+        }
+
+        long[] current() {
+            long now = System.currentTimeMillis();
+            if (now - readAt > MAX_AGE_MILLIS) {
+                Object[] row = fileChunkRepository.summarizeUploads().get(0);
+                values = new long[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+                readAt = now;
+            }
+            return values;
+        }
+    }
+}
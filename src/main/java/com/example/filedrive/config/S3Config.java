@@ -1,10 +1,26 @@
 package com.example.filedrive.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.SdkAdvancedAsyncClientOption;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.SdkEventLoopGroup;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3CrtAsyncClientBuilder;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
 @Configuration
 public class S3Config {
@@ -12,14 +28,105 @@ public class S3Config {
     @Value("${cloud.aws.region.static}")
     private String region;
 
+    @Value("${cloud.aws.credentials.access-key}")
+    private String accessKey;
+
+    @Value("${cloud.aws.credentials.secret-key}")
+    private String secretKey;
+
     @Value("${application.bucket.name}")
     private String bucketName;
 
+    // S3-compatible endpoint to use instead of AWS (e.g. MinIO, or the in-process fake of the load test)
+    @Value("${application.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${application.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    @Value("${application.s3.async.max-concurrency:200}")
+    private int asyncMaxConcurrency;
+
+    @Value("${application.s3.async.max-pending-acquires:10000}")
+    private int asyncMaxPendingAcquires;
+
+    @Value("${application.s3.async.connection-acquire-timeout-seconds:10}")
+    private long asyncAcquireTimeoutSeconds;
+
+    // 0 keeps the Netty default of two threads per core
+    @Value("${application.s3.async.event-loop-threads:0}")
+    private int asyncEventLoopThreads;
+
+    @Value("${application.s3.transfer.target-throughput-gbps:10.0}")
+    private double transferTargetThroughputGbps;
+
+    @Value("${application.s3.transfer.min-part-size-bytes:8388608}")
+    private long transferMinPartSizeBytes;
+
+    @Value("${application.s3.transfer.max-concurrency:16}")
+    private int transferMaxConcurrency;
+
     @Bean
     public S3Client s3Client() {
-        return S3Client.builder()
+        S3ClientBuilder builder = S3Client.builder()
                 .region(Region.of(region))
-                .build(); // Uses default credential provider chain
+                .forcePathStyle(pathStyleAccess); // Uses default credential provider chain
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    @Primary
+    public S3AsyncClient s3AsyncClient(@Qualifier("s3CompletionExecutor") ExecutorService s3CompletionExecutor) {
+        SdkEventLoopGroup.Builder eventLoopGroup = SdkEventLoopGroup.builder();
+        if (asyncEventLoopThreads > 0) {
+            eventLoopGroup.numberOfThreads(asyncEventLoopThreads);
+        }
+
+        S3AsyncClientBuilder builder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .forcePathStyle(pathStyleAccess)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(asyncMaxConcurrency)
+                        .maxPendingConnectionAcquires(asyncMaxPendingAcquires)
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(asyncAcquireTimeoutSeconds))
+                        .eventLoopGroupBuilder(eventLoopGroup))
+                // Callbacks run JDBC work, so keep them off the Netty event loop
+                .asyncConfiguration(config -> config.advancedOption(
+                        SdkAdvancedAsyncClientOption.FUTURE_COMPLETION_EXECUTOR, s3CompletionExecutor));
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    /**
+     * CRT-based client used by the Transfer Manager. Parts are uploaded in parallel from a native
+     * buffer pool, so memory use stays near part size times concurrency whatever the object size.
+     */
+    @Bean
+    public S3AsyncClient s3CrtAsyncClient() {
+        S3CrtAsyncClientBuilder builder = S3AsyncClient.crtBuilder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .forcePathStyle(pathStyleAccess)
+                .targetThroughputInGbps(transferTargetThroughputGbps)
+                .minimumPartSizeInBytes(transferMinPartSizeBytes)
+                .maxConcurrency(transferMaxConcurrency);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public S3TransferManager s3TransferManager(@Qualifier("s3CrtAsyncClient") S3AsyncClient s3CrtAsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3CrtAsyncClient)
+                .build();
     }
 
     @Bean
@@ -0,0 +1,109 @@
+package com.example.filedrive.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reports virtual threads that block while pinned to their carrier, typically inside a
+ * {@code synchronized} section of the JDBC driver or another library. Each event is attributed to
+ * the first frame outside the JDK, and every new site is logged once with its stack.
+ * On JVMs without virtual threads the JFR event doesn't exist and nothing is ever reported.
+ */
+@Component
+@ConditionalOnProperty(name = "application.threads.virtual.pinning-diagnostics.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private final ConcurrentHashMap<String, LongAdder> pinnedBySite = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+            @Value("${application.threads.virtual.pinning-diagnostics.threshold-ms:20}") long thresholdMillis) {
+        this.threshold = Duration.ofMillis(thresholdMillis);
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        pinnedEvents.increment();
+        String site = pinningSite(event);
+        LongAdder count = new LongAdder();
+        LongAdder existing = pinnedBySite.putIfAbsent(site, count);
+        if (existing != null) {
+            existing.increment();
+            return;
+        }
+
+        // Only the event that registered the site logs it
+        count.increment();
+        System.err.println("Virtual thread pinned for " + event.getDuration().toMillis() + " ms at " + site
+                + System.lineSeparator() + stackOf(event));
+    }
+
+    private static String pinningSite(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown";
+        }
+
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String className = frame.getMethod().getType().getName();
+            if (!className.startsWith("java.") && !className.startsWith("jdk.") && !className.startsWith("sun.")) {
+                return className + "." + frame.getMethod().getName();
+            }
+        }
+        return "jdk";
+    }
+
+    private static String stackOf(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "";
+        }
+
+        StringBuilder stack = new StringBuilder();
+        event.getStackTrace().getFrames().stream().limit(LOGGED_FRAMES).forEach(frame -> stack
+                .append("    at ").append(frame.getMethod().getType().getName())
+                .append('.').append(frame.getMethod().getName())
+                .append(':').append(frame.getLineNumber())
+                .append(System.lineSeparator()));
+        return stack.toString();
+    }
+
+    public long getPinnedEventCount() {
+        return pinnedEvents.sum();
+    }
+
+    public Map<String, Long> getPinnedSites() {
+        Map<String, Long> sites = new TreeMap<>();
+        pinnedBySite.forEach((site, count) -> sites.put(site, count.sum()));
+        return sites;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.filedrive.controller;
 
+import com.example.filedrive.security.VerifiedTokenCache;
 import com.example.filedrive.service.UserService;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
@@ -19,10 +20,12 @@ import java.util.Map;
 public class AuthController {
 
     private final UserService userService;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Autowired
-    public AuthController(UserService userService) {
+    public AuthController(UserService userService, VerifiedTokenCache verifiedTokenCache) {
         this.userService = userService;
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @PostMapping("/auth/user")
@@ -42,4 +45,32 @@ public class AuthController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
         }
     }
+
+    // The presented token stops working right away instead of at its expiry; with allDevices the user's
+    // refresh tokens are revoked in Firebase and every token issued to them so far is rejected too
+    @PostMapping("/auth/signout")
+    public ResponseEntity<?> signOut(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                     @RequestParam(defaultValue = "false") boolean allDevices) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Missing token");
+        }
+
+        String idToken = authorization.substring(7);
+        try {
+            String uid = verifiedTokenCache.verify(idToken);
+            if (uid == null) {
+                // Already revoked
+                return ResponseEntity.ok("Signed out");
+            }
+
+            if (allDevices) {
+                FirebaseAuth.getInstance().revokeRefreshTokens(uid);
+                verifiedTokenCache.revokeUser(uid);
+            }
+            verifiedTokenCache.revokeToken(idToken);
+            return ResponseEntity.ok("Signed out");
+        } catch (FirebaseAuthException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid token");
+        }
+    }
 }
@@ -2,24 +2,32 @@ package com.example.filedrive.controller;
 
 import com.example.filedrive.dto.*;
 import com.example.filedrive.service.FileService;
+import com.example.filedrive.service.FileStreamingService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/v1/drive")
 public class FileController {
     private static final Logger logger = LoggerFactory.getLogger(FileController.class);
     private final FileService fileService;
+    private final FileStreamingService fileStreamingService;
 
-    public FileController(FileService fileService) {
+    public FileController(FileService fileService, FileStreamingService fileStreamingService) {
         this.fileService = fileService;
+        this.fileStreamingService = fileStreamingService;
     }
 
     @PostMapping("/upload/file")
@@ -45,26 +53,52 @@ public class FileController {
         }
     }
 
-    @PostMapping("/upload/multipart/init")
-    public ResponseEntity<?> uploadMultipartFile(@RequestBody UploadFileRequest request){
-        logger.info("API Call: POST /upload/multipart");
+    @PostMapping("/upload/stream")
+    public ResponseEntity<?> uploadFileStream(@RequestParam String userId,
+                                              @RequestParam String fileName,
+                                              @RequestParam(required = false) String fileType,
+                                              HttpServletRequest request) {
+        logger.info("API Call: POST /upload/stream");
         try {
-            if (request == null || request.getUserId() == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid request or missing user ID."));
+            long contentLength = request.getContentLengthLong();
+            if (contentLength < 0) {
+                return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED)
+                        .body(Map.of("error", "Content-Length is required for streaming uploads."));
             }
 
-            UploadFileResponse response = fileService.initiateMultipartUpload(request);
-            if (response == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File upload failed."));
-            }
+            String contentType = fileType != null ? fileType : request.getContentType();
+            UploadFileResponse response = fileService.uploadFileStream(
+                    userId, fileName, contentType, contentLength, request.getInputStream());
             return ResponseEntity.ok().body(response);
         } catch (IllegalArgumentException e) {
-            logger.warn("Bad request during file upload: {}", e.getMessage());
+            logger.warn("Bad request during streaming upload: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            logger.error("Error during file upload: {}", e.getMessage(), e);
+            logger.error("Error during streaming upload: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Internal server error during file upload: " + e.getMessage()));
+                    .body(Map.of("error", "Internal server error during streaming upload: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/upload/multipart/init")
+    public CompletableFuture<ResponseEntity<?>> uploadMultipartFile(@RequestBody UploadFileRequest request){
+        logger.info("API Call: POST /upload/multipart");
+        if (request == null || request.getUserId() == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "Invalid request or missing user ID.")));
+        }
+
+        try {
+            return fileService.initiateMultipartUpload(request)
+                    .<ResponseEntity<?>>thenApply(response -> {
+                        if (response == null) {
+                            return ResponseEntity.badRequest().body(Map.of("error", "File upload failed."));
+                        }
+                        return ResponseEntity.ok().body(response);
+                    })
+                    .exceptionally(e -> errorResponse(e, "file upload"));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorResponse(e, "file upload"));
         }
     }
 
@@ -91,8 +125,31 @@ public class FileController {
         }
     }
 
+    @PostMapping("/upload/multipart/chunks")
+    public ResponseEntity<?> getMultipartUploadUrls(@RequestBody MultipartBatchUploadRequest request) {
+        logger.info("API Call: POST /upload/multipart/chunks");
+        try {
+            if (request == null || request.getFileId() == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid request or missing file ID."));
+            }
+
+            MultipartBatchUploadResponse response = fileService.getMultipartUploadUrls(request);
+            if (response == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Failed to generate upload URLs for parts."));
+            }
+            return ResponseEntity.ok().body(response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Bad request during multipart upload parts: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error getting upload URLs for parts: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Internal server error getting upload URLs for parts: " + e.getMessage()));
+        }
+    }
+
     @PostMapping("/upload/multipart/part/status")
-    public ResponseEntity<?> updatePartStatus(@RequestBody Map<String, Object> request) {
+    public CompletableFuture<ResponseEntity<?>> updatePartStatus(@RequestBody Map<String, Object> request) {
         logger.info("API Call: POST /upload/multipart/part/status");
         try {
             String fileId = (String) request.get("fileId");
@@ -100,44 +157,66 @@ public class FileController {
             String eTag = (String) request.get("eTag");
 
             if (fileId == null || chunkNumber == null || eTag == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File ID, part number, and ETag are required."));
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body(Map.of("error", "File ID, part number, and ETag are required.")));
             }
 
-            boolean result = fileService.updateChunkUploadStatus(fileId, chunkNumber, eTag);
-            if (result) {
-                return ResponseEntity.ok().body(Map.of("message", "Part status updated successfully"));
-            }
-            return ResponseEntity.badRequest().body(Map.of("error", "Failed to update part status."));
-        } catch (IllegalArgumentException e) {
-            logger.warn("Bad request during part status update: {}", e.getMessage());
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            return fileService.updateChunkUploadStatus(fileId, chunkNumber, eTag)
+                    .<ResponseEntity<?>>thenApply(result -> {
+                        if (result) {
+                            return ResponseEntity.ok().body(Map.of("message", "Part status updated successfully"));
+                        }
+                        return ResponseEntity.badRequest().body(Map.of("error", "Failed to update part status."));
+                    })
+                    .exceptionally(e -> errorResponse(e, "part status update"));
         } catch (Exception e) {
-            logger.error("Error updating part status: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Internal server error updating part status: " + e.getMessage()));
+            return CompletableFuture.completedFuture(errorResponse(e, "part status update"));
+        }
+    }
+
+    @PostMapping("/upload/multipart/parts/status")
+    public CompletableFuture<ResponseEntity<?>> updatePartStatuses(@RequestBody MultipartPartStatusRequest request) {
+        logger.info("API Call: POST /upload/multipart/parts/status");
+        if (request == null || request.getFileId() == null || request.getParts() == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "File ID and parts are required.")));
+        }
+
+        try {
+            return fileService.updateChunkUploadStatuses(request.getFileId(), request.getParts())
+                    .<ResponseEntity<?>>thenApply(result -> {
+                        if (result) {
+                            return ResponseEntity.ok().body(Map.of(
+                                    "message", "Part statuses updated successfully",
+                                    "parts", request.getParts().size()));
+                        }
+                        return ResponseEntity.badRequest().body(Map.of("error", "Upload not found or already finished."));
+                    })
+                    .exceptionally(e -> errorResponse(e, "part status update"));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(errorResponse(e, "part status update"));
         }
     }
 
     @PostMapping("/upload/multipart/complete")
-    public ResponseEntity<?> completeMultipartUpload(@RequestBody MultipartUploadCompleteRequest request) {
+    public CompletableFuture<ResponseEntity<?>> completeMultipartUpload(@RequestBody MultipartUploadCompleteRequest request) {
         logger.info("API Call: POST /upload/multipart/complete");
-        try {
-            if (request == null || request.getFileId() == null || request.getUploadId() == null || request.getParts() == null) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid complete multipart upload request."));
-            }
+        if (request == null || request.getFileId() == null || request.getUploadId() == null || request.getParts() == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "Invalid complete multipart upload request.")));
+        }
 
-            boolean result = fileService.completeMultipartUpload(request);
-            if (result) {
-                return ResponseEntity.ok().body(Map.of("message", "Multipart upload completed successfully"));
-            }
-            return ResponseEntity.badRequest().body(Map.of("error", "Failed to complete multipart upload."));
-        } catch (IllegalArgumentException e) {
-            logger.warn("Bad request during multipart upload completion: {}", e.getMessage());
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        try {
+            return fileService.completeMultipartUpload(request)
+                    .<ResponseEntity<?>>thenApply(result -> {
+                        if (result) {
+                            return ResponseEntity.ok().body(Map.of("message", "Multipart upload completed successfully"));
+                        }
+                        return ResponseEntity.badRequest().body(Map.of("error", "Failed to complete multipart upload."));
+                    })
+                    .exceptionally(e -> errorResponse(e, "multipart upload completion"));
         } catch (Exception e) {
-            logger.error("Error completing multipart upload: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Internal server error completing multipart upload: " + e.getMessage()));
+            return CompletableFuture.completedFuture(errorResponse(e, "multipart upload completion"));
         }
     }
 
@@ -178,22 +257,24 @@ public class FileController {
     }
 
     @DeleteMapping("/upload/multipart/cancel/{fileId}")
-    public ResponseEntity<?> cancelMultipartUpload(@PathVariable String fileId) {
+    public CompletableFuture<ResponseEntity<?>> cancelMultipartUpload(@PathVariable String fileId) {
         logger.info("API Call: DELETE /upload/multipart/cancel/{}", fileId);
-        try {
-            if (fileId == null || fileId.isBlank()) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File ID cannot be empty."));
-            }
+        if (fileId == null || fileId.isBlank()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body(Map.of("error", "File ID cannot be empty.")));
+        }
 
-            boolean result = fileService.cancelMultipartUpload(fileId);
-            if (result) {
-                return ResponseEntity.ok().body(Map.of("message", "Upload canceled successfully"));
-            }
-            return ResponseEntity.badRequest().body(Map.of("error", "Failed to cancel upload."));
+        try {
+            return fileService.cancelMultipartUpload(fileId)
+                    .<ResponseEntity<?>>thenApply(result -> {
+                        if (result) {
+                            return ResponseEntity.ok().body(Map.of("message", "Upload canceled successfully"));
+                        }
+                        return ResponseEntity.badRequest().body(Map.of("error", "Failed to cancel upload."));
+                    })
+                    .exceptionally(e -> errorResponse(e, "multipart upload cancel"));
         } catch (Exception e) {
-            logger.error("Error canceling multipart upload: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Internal server error canceling multipart upload: " + e.getMessage()));
+            return CompletableFuture.completedFuture(errorResponse(e, "multipart upload cancel"));
         }
     }
 
@@ -220,6 +301,32 @@ public class FileController {
         }
     }
 
+    @GetMapping("/download/stream/{fileId}")
+    public void streamFile(@PathVariable String fileId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        logger.info("API Call: GET /download/stream/{}", fileId);
+        try {
+            if (fileId == null || fileId.isBlank()) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "File ID cannot be empty.");
+                return;
+            }
+
+            fileStreamingService.streamFile(fileId, request, response);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Bad request during file stream: {}", e.getMessage());
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            }
+        } catch (IOException e) {
+            // Usually the client went away mid-transfer
+            logger.warn("I/O error while streaming file {}: {}", fileId, e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error streaming file: {}", e.getMessage(), e);
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        }
+    }
+
     @GetMapping("/files/{userId}")
     public ResponseEntity<List<FileMetadataResponse>> listFiles(@PathVariable String userId) {
         logger.info("API Call: GET /files/{}", userId);
@@ -236,6 +343,26 @@ public class FileController {
         }
     }
 
+    @GetMapping("/files/{userId}/page")
+    public ResponseEntity<?> listFilesPage(@PathVariable String userId,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size,
+                                           @RequestParam(required = false) String sort,
+                                           @RequestParam(required = false) String direction) {
+        logger.info("API Call: GET /files/{}/page", userId);
+        try {
+            FileListPage page = fileService.getFilesPage(userId, cursor, size, sort, direction);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Bad request during file listing: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error listing files: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Internal server error listing files: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/file/{uniqueFileId}")
     public ResponseEntity<FileMetadataResponse> getFile(@PathVariable String uniqueFileId) {
         logger.info("API Call: GET /file/{}", uniqueFileId);
@@ -282,15 +409,31 @@ public class FileController {
         }
     }
 
+    @PostMapping("/files/share")
+    public ResponseEntity<?> shareFiles(@RequestBody BulkShareRequest request) {
+        logger.info("API Call: POST /files/share");
+        try {
+            if (request == null || request.getUserId() == null || request.getFileIds() == null || request.getRecipients() == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "User ID, file IDs and recipients are required."));
+            }
+
+            return ResponseEntity.ok(fileService.shareFiles(request));
+        } catch (Exception e) {
+            return errorResponse(e, "bulk file share");
+        }
+    }
+
     @GetMapping("/files/shared/{userId}")
-    public ResponseEntity<List<FileMetadataResponse>> listSharedFiles(@PathVariable String userId) {
+    public ResponseEntity<List<FileMetadataResponse>> listSharedFiles(@PathVariable String userId,
+                                                                      @RequestParam(required = false) Integer page,
+                                                                      @RequestParam(required = false) Integer size) {
         logger.info("API Call: GET /files/shared/{}", userId);
         try {
             if (userId == null) {
                 return ResponseEntity.badRequest().body(Collections.emptyList());
             }
 
-            List<FileMetadataResponse> fileShareList = fileService.getFileShares(userId);
+            List<FileMetadataResponse> fileShareList = fileService.getFileShares(userId, page, size);
             return ResponseEntity.ok(fileShareList);
         } catch (Exception e) {
             logger.error("Error listing shared files: {}", e.getMessage(), e);
@@ -311,13 +454,35 @@ public class FileController {
                 return ResponseEntity.ok().body(Map.of("message", "File deleted successfully"));
             }
             return ResponseEntity.badRequest().body(Map.of("error", "File delete failed."));
-        } catch (IllegalArgumentException e) {
-            logger.warn("Bad request during file delete: {}", e.getMessage());
-            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
-            logger.error("Error deleting file: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(Map.of("error", "Internal server error during file deletion: " + e.getMessage()));
+            return errorResponse(e, "file deletion");
         }
     }
+
+    @PostMapping("/files/delete")
+    public ResponseEntity<?> deleteFiles(@RequestBody BulkDeleteRequest request) {
+        logger.info("API Call: POST /files/delete");
+        try {
+            if (request == null || request.getUserId() == null || request.getFileIds() == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "User ID and file IDs are required."));
+            }
+
+            BulkDeleteResponse response = fileService.deleteFiles(request);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return errorResponse(e, "bulk file deletion");
+        }
+    }
+
+    private ResponseEntity<?> errorResponse(Throwable error, String operation) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException) {
+            logger.warn("Bad request during {}: {}", operation, cause.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(cause.getMessage())));
+        }
+
+        logger.error("Error during {}: {}", operation, cause.getMessage(), cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error during " + operation + ": " + cause.getMessage()));
+    }
 }
\ No newline at end of file
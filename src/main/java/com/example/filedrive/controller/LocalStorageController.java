@@ -0,0 +1,106 @@
+package com.example.filedrive.controller;
+
+import com.example.filedrive.service.LocalS3EventPublisher;
+import com.example.filedrive.storage.ByteRange;
+import com.example.filedrive.storage.LocalStorageBackend;
+import com.example.filedrive.storage.ObjectContent;
+import com.example.filedrive.storage.StorageException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The URLs the local storage engine hands out in place of presigned S3 URLs: PUT stores an object
+ * or a multipart part, GET serves an object with single-range support.
+ */
+@RestController
+@RequestMapping("/api/v1/drive/storage/local")
+@ConditionalOnProperty(name = "application.storage.backend", havingValue = "local")
+public class LocalStorageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStorageController.class);
+
+    private final LocalStorageBackend localStorageBackend;
+    private final LocalS3EventPublisher localS3EventPublisher;
+
+    @Autowired
+    public LocalStorageController(LocalStorageBackend localStorageBackend, LocalS3EventPublisher localS3EventPublisher) {
+        this.localStorageBackend = localStorageBackend;
+        this.localS3EventPublisher = localS3EventPublisher;
+    }
+
+    @PutMapping("/{token}")
+    public ResponseEntity<?> upload(@PathVariable String token, HttpServletRequest request) {
+        try {
+            LocalStorageBackend.Grant grant = localStorageBackend.verify(token);
+            long contentLength = request.getContentLengthLong();
+
+            String eTag;
+            if (grant.operation() == LocalStorageBackend.Operation.PUT_OBJECT) {
+                eTag = localStorageBackend.writeObject(grant.objectKey(), request.getInputStream(), contentLength,
+                        grant.checksumSha256());
+                // What the bucket notification does for S3: single-part uploads become UPLOADED
+                localS3EventPublisher.publishObjectCreated(List.of(grant.objectKey()));
+            } else if (grant.operation() == LocalStorageBackend.Operation.PUT_PART) {
+                eTag = localStorageBackend.writePart(grant.objectKey(), grant.uploadId(), grant.partNumber(),
+                        request.getInputStream(), contentLength);
+            } else {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "URL does not allow uploads."));
+            }
+            return ResponseEntity.ok().eTag(eTag).build();
+        } catch (StorageException e) {
+            logger.warn("Rejected local storage upload: {}", e.getMessage());
+            return ResponseEntity.status(e.getStatusCode()).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error storing upload: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Internal server error during upload: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{token}")
+    public void download(@PathVariable String token, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        try {
+            LocalStorageBackend.Grant grant = localStorageBackend.verify(token);
+            if (grant.operation() != LocalStorageBackend.Operation.GET_OBJECT) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "URL does not allow downloads.");
+                return;
+            }
+
+            ByteRange range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE));
+            try (ObjectContent object = localStorageBackend.getObject(grant.objectKey(), range, null, null)) {
+                if (object.contentRange() != null) {
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, object.contentRange());
+                }
+                response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                response.setHeader(HttpHeaders.ETAG, object.eTag());
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, object.lastModified().toEpochMilli());
+                response.setContentType("application/octet-stream");
+                response.setContentLengthLong(object.contentLength());
+                object.content().transferTo(response.getOutputStream());
+            }
+        } catch (StorageException e) {
+            if (!response.isCommitted()) {
+                response.sendError(e.getStatusCode(), e.getMessage());
+            }
+        } catch (IllegalArgumentException e) {
+            if (!response.isCommitted()) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            }
+        }
+    }
+}
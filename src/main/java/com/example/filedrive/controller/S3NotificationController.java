@@ -1,8 +1,11 @@
 package com.example.filedrive.controller;
 
+import com.example.filedrive.dto.S3EventNotification;
 import com.example.filedrive.service.FileService;
+import com.example.filedrive.service.S3EventIngestionService;
 import com.example.filedrive.service.S3Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,10 +17,12 @@ import java.util.Map;
 public class S3NotificationController {
 
     private final FileService fileService;
+    private final S3EventIngestionService s3EventIngestionService;
 
     @Autowired
-    public S3NotificationController(FileService fileService) {
+    public S3NotificationController(FileService fileService, S3EventIngestionService s3EventIngestionService) {
         this.fileService = fileService;
+        this.s3EventIngestionService = s3EventIngestionService;
     }
 
     @PostMapping("/upload")
@@ -33,5 +38,20 @@ public class S3NotificationController {
         }
         return ResponseEntity.ok(response);
     }
-}
 
+    // Standard S3 event notification document; acknowledged as soon as the records are queued
+    @PostMapping("/events")
+    public ResponseEntity<Map<String, Object>> handleS3Events(@RequestBody S3EventNotification notification) {
+        S3EventIngestionService.IngestResult result = s3EventIngestionService.submit(notification);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("accepted", result.accepted());
+        response.put("rejected", result.rejected());
+
+        if (result.rejected() > 0) {
+            // Queue is full; a non-2xx makes the sender redeliver, and re-applying accepted records is harmless
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+        return ResponseEntity.accepted().body(response);
+    }
+}
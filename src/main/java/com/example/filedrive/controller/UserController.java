@@ -52,15 +52,16 @@ public class UserController {
 //    }
 
     @GetMapping("/users/search/{searchKeyword}")
-    public ResponseEntity<List<SearchUser>> searchFiles(@PathVariable String searchKeyword) {
-        logger.info("API Call: GET /users/search/{}", searchKeyword);
+    public ResponseEntity<List<SearchUser>> searchFiles(@PathVariable String searchKeyword,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        logger.info("API Call: GET /users/search/{}?limit={}", searchKeyword, limit);
         try {
             if (searchKeyword == null || searchKeyword.isBlank()) {
                 logger.warn("Invalid search keyword: Cannot be null or empty");
                 return ResponseEntity.badRequest().body(Collections.emptyList());
             }
 
-            List<SearchUser> users = userService.searchUsers(searchKeyword);
+            List<SearchUser> users = userService.searchUsers(searchKeyword, limit);
             return ResponseEntity.ok(users);
         } catch (Exception e) {
             logger.error("Error searching users: {}", e.getMessage(), e);
@@ -0,0 +1,13 @@
+package com.example.filedrive.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkDeleteRequest {
+    private String userId;
+    private List<String> fileIds;
+}
@@ -0,0 +1,30 @@
+package com.example.filedrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkDeleteResponse {
+    private int deleted;
+    private List<ItemResult> results;
+
+    public enum Status {
+        DELETED,
+        NOT_FOUND,
+        FORBIDDEN
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private String fileId;
+        private Status status;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.filedrive.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkShareRequest {
+    // Owner of the files being shared
+    private String userId;
+    private List<String> fileIds;
+    private List<String> recipients;
+}
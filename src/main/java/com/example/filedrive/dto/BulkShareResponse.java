@@ -0,0 +1,16 @@
+package com.example.filedrive.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BulkShareResponse {
+    private int created;
+    // Pairs that were already shared, or repeated in the request
+    private int skipped;
+    private List<String> notFound;
+    private List<String> forbidden;
+}
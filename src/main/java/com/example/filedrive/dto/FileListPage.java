@@ -0,0 +1,14 @@
+package com.example.filedrive.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class FileListPage {
+    private List<FileMetadataResponse> files;
+    // Opaque token for the next page; null on the last page
+    private String nextCursor;
+}
@@ -1,12 +1,16 @@
 package com.example.filedrive.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.util.Date;
 
 @Getter
 @Setter
+@NoArgsConstructor
+@AllArgsConstructor
 public class FileMetadataResponse {
     private String userId;
     private String fileName;
@@ -0,0 +1,16 @@
+package com.example.filedrive.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class MultipartBatchUploadRequest {
+    private String fileId;
+    // Either an inclusive range or an explicit list of chunk numbers
+    private Integer startChunk;
+    private Integer endChunk;
+    private List<Integer> chunkNumbers;
+}
@@ -0,0 +1,14 @@
+package com.example.filedrive.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class MultipartBatchUploadResponse {
+    private String fileId;
+    private String uploadId;
+    private List<MultipartUploadResponse> parts;
+}
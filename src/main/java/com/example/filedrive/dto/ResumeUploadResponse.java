@@ -13,6 +13,8 @@ public class ResumeUploadResponse {
     private Long fileSize;
     private Integer totalChunks;
     private List<UploadedChunkInfo> completedChunks;
+    // Base64 bitset, bit n set when part n has been received
+    private String receivedPartsBitmap;
     private String uploadUrl;
     private Integer chunkNumber;
 
@@ -0,0 +1,47 @@
+package com.example.filedrive.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// Subset of the standard S3 event notification document (https://docs.aws.amazon.com/AmazonS3/latest/userguide/notification-content-structure.html)
+@Getter
+@Setter
+public class S3EventNotification {
+    @JsonProperty("Records")
+    private List<EventRecord> records;
+
+    @Getter
+    @Setter
+    public static class EventRecord {
+        private String eventSource;
+        private String eventName;
+        private String eventTime;
+        private S3Entity s3;
+    }
+
+    @Getter
+    @Setter
+    public static class S3Entity {
+        private Bucket bucket;
+        private S3Object object;
+    }
+
+    @Getter
+    @Setter
+    public static class Bucket {
+        private String name;
+    }
+
+    @Getter
+    @Setter
+    public static class S3Object {
+        // URL-encoded the same way as an HTML form value
+        private String key;
+        private Long size;
+        private String eTag;
+        private String sequencer;
+    }
+}
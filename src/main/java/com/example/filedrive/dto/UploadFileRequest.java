@@ -25,4 +25,7 @@ public class UploadFileRequest {
     private Date fileLastModifiedDate;
 
     private Integer totalChunks;
+
+    // Optional hex SHA-256 of the content; enables deduplication against the user's already stored blobs
+    private String contentHash;
 }
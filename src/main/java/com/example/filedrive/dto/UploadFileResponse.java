@@ -9,4 +9,5 @@ public class UploadFileResponse {
     String preSignedUrl;
     String uploadId;
     String fileId;
+    boolean deduplicated;
 }
@@ -3,6 +3,7 @@ package com.example.filedrive.mapper;
 import com.example.filedrive.dto.FileMetadataResponse;
 import com.example.filedrive.dto.UserResponse;
 import com.example.filedrive.model.FileMetadata;
+import com.example.filedrive.model.FileMetadataSnapshot;
 import com.example.filedrive.model.FileShare;
 import com.example.filedrive.model.User;
 
@@ -33,6 +34,25 @@ public class EntityDTOMapper {
         return dto;
     }
 
+    public FileMetadataResponse toFileMetadataDTO(FileMetadataSnapshot snapshot) {
+        if (snapshot == null) {
+            return null;
+        }
+
+        FileMetadataResponse dto = new FileMetadataResponse();
+        dto.setUserId(snapshot.userId());
+        dto.setFileName(snapshot.fileName());
+        dto.setFileId(snapshot.fileId());
+        dto.setFileType(snapshot.fileType());
+        dto.setFileSize(snapshot.fileSize());
+        dto.setS3Url(snapshot.s3Url());
+        dto.setStatus(snapshot.status());
+        dto.setFilePath(snapshot.filePath());
+        dto.setLastModifiedData(snapshot.lastModifiedData());
+
+        return dto;
+    }
+
     public List<FileMetadataResponse> toFileMetadataDTOList(List<FileMetadata> entities) {
         if (entities == null) {
             return null;
@@ -0,0 +1,55 @@
+package com.example.filedrive.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// Blobs are per user: a client-supplied hash is no proof of having the bytes, so content is never shared across users
+@Entity
+@Getter
+@Setter
+@IdClass(FileBlob.Key.class)
+public class FileBlob {
+    @Id
+    @Column(name = "user_id")
+    private String userId;
+
+    // Lowercase hex SHA-256 of the object content
+    @Id
+    @Column(length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private String filePath;
+
+    private long fileSize;
+
+    private long refCount;
+
+    private LocalDateTime createdAt;
+
+    // Lets save() persist new blobs instead of merging over a concurrently inserted row
+    @Version
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private String userId;
+        private String contentHash;
+    }
+}
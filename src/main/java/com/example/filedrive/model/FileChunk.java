@@ -4,14 +4,14 @@ import lombok.Getter;
 import lombok.Setter;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 @Entity
 @Getter
 @Setter
+@Table(indexes = @Index(name = "idx_file_chunk_last_updated", columnList = "last_updated_at, file_id"))
 public class FileChunk {
     @Id
+    @Column(name = "file_id")
     private String fileId;
 
     @Column(nullable = false)
@@ -25,11 +25,11 @@ public class FileChunk {
     private Long fileSize;
     private Integer totalChunks;
     private LocalDateTime createdAt;
+    @Column(name = "last_updated_at")
     private LocalDateTime lastUpdatedAt;
 
-    @ElementCollection
-    @CollectionTable(name = "file_chunks", joinColumns = @JoinColumn(name = "file_id"))
-    private List<UploadedChunk> uploadedChunk = new ArrayList<>();
+    // Number of distinct parts in uploaded_part, bumped only when a part number is seen for the first time
+    private int receivedChunks;
 
     @PrePersist
     protected void onCreate() {
@@ -42,11 +42,8 @@ public class FileChunk {
         lastUpdatedAt = LocalDateTime.now();
     }
 
-    @Embeddable
-    @Getter
-    @Setter
-    public static class UploadedChunk{
-        private Integer chunkNumber;
-        private String eTag;
+    // Without a declared part count the best we can check is that something was uploaded
+    public boolean isComplete() {
+        return totalChunks != null ? receivedChunks >= totalChunks : receivedChunks > 0;
     }
 }
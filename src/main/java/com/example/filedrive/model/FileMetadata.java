@@ -4,15 +4,19 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
 
 @Entity
 @Getter
 @Setter
+@Table(indexes = @Index(name = "idx_file_metadata_user_status_modified",
+        columnList = "user_id, status, last_modified_data, file_id"))
 public class FileMetadata {
 
     @Id
+    @Column(name = "file_id")
     private String fileId;
 
     @ManyToOne(fetch = FetchType.EAGER)
@@ -31,8 +35,24 @@ public class FileMetadata {
 
     private String status;
     private String filePath;
+    @Column(name = "last_modified_data")
     private Date lastModifiedData;
 
+    // When the row was created; lastModifiedData is the client's own file timestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    // SHA-256 supplied by the client for deduplicated uploads
+    @Column(length = 64)
+    private String contentHash;
+
     @OneToMany(mappedBy = "fileMetadata", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<FileShare> fileShares;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
 }
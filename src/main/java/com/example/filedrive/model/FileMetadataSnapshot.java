@@ -0,0 +1,39 @@
+package com.example.filedrive.model;
+
+import java.util.Date;
+
+/**
+ * Immutable copy of a {@link FileMetadata} row, safe to share between threads from the metadata cache.
+ * Writes always go through the entity, never through a snapshot.
+ */
+public record FileMetadataSnapshot(String fileId, String userId, String fileName, String fileType, long fileSize,
+                                   String s3Url, String uploadId, Integer totalChunks, String status,
+                                   String filePath, Date lastModifiedData, String contentHash) {
+
+    public static FileMetadataSnapshot of(FileMetadata fileMetadata) {
+        Date lastModified = fileMetadata.getLastModifiedData();
+        return new FileMetadataSnapshot(
+                fileMetadata.getFileId(),
+                fileMetadata.getUser() != null ? fileMetadata.getUser().getId() : null,
+                fileMetadata.getFileName(),
+                fileMetadata.getFileType(),
+                fileMetadata.getFileSize(),
+                fileMetadata.getS3Url(),
+                fileMetadata.getUploadId(),
+                fileMetadata.getTotalChunks(),
+                fileMetadata.getStatus(),
+                fileMetadata.getFilePath(),
+                lastModified != null ? new Date(lastModified.getTime()) : null,
+                fileMetadata.getContentHash());
+    }
+
+    public boolean hasStatus(FileStatus fileStatus) {
+        return fileStatus.toString().equals(status);
+    }
+
+    // Date is mutable; hand out copies so the cached snapshot can't be changed
+    @Override
+    public Date lastModifiedData() {
+        return lastModifiedData != null ? new Date(lastModifiedData.getTime()) : null;
+    }
+}
@@ -5,5 +5,6 @@ public enum FileStatus {
     UPLOADED,
     MULTIPART_INITIATED,
     MULTIPART_IN_PROGRESS,
+    STREAMING,
     FAILED
 }
@@ -0,0 +1,32 @@
+package com.example.filedrive.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// S3 object waiting to be removed; written in the same transaction as the metadata change that orphaned it
+@Entity
+@Getter
+@Setter
+@Table(name = "pending_deletion", indexes = @Index(name = "idx_pending_deletion_due", columnList = "not_before, id"))
+public class PendingDeletion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "object_key", nullable = false, length = 1024)
+    private String objectKey;
+
+    private int attempts;
+
+    @Column(name = "not_before", nullable = false)
+    private LocalDateTime notBefore;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
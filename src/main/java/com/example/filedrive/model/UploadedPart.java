@@ -0,0 +1,43 @@
+package com.example.filedrive.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// One row per received part; the (file_id, chunk_number) primary key keeps parts of a file clustered in order
+@Entity
+@Getter
+@Setter
+@IdClass(UploadedPart.Key.class)
+@Table(name = "uploaded_part")
+public class UploadedPart {
+    @Id
+    @Column(name = "file_id")
+    private String fileId;
+
+    @Id
+    @Column(name = "chunk_number")
+    private Integer chunkNumber;
+
+    @Column(name = "e_tag", nullable = false)
+    private String eTag;
+
+    @Column(name = "uploaded_at")
+    private LocalDateTime uploadedAt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private String fileId;
+        private Integer chunkNumber;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.model.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface FileBlobRepository extends JpaRepository<FileBlob, FileBlob.Key> {
+
+    // A blob whose count already dropped to zero is being deleted and cannot be revived
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + 1 " +
+            "WHERE b.userId = :userId AND b.contentHash = :contentHash AND b.refCount > 0")
+    int incrementRefCount(String userId, String contentHash);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - 1 " +
+            "WHERE b.userId = :userId AND b.contentHash = :contentHash AND b.refCount > 0")
+    int decrementRefCount(String userId, String contentHash);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileBlob b WHERE b.userId = :userId AND b.contentHash = :contentHash AND b.refCount <= 0")
+    int deleteIfUnreferenced(String userId, String contentHash);
+}
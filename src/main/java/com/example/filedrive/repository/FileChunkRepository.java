@@ -1,7 +1,9 @@
 package com.example.filedrive.repository;
 
 import com.example.filedrive.model.FileChunk;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -11,4 +13,16 @@ import java.util.List;
 public interface FileChunkRepository extends JpaRepository<FileChunk, String> {
     List<FileChunk> findByUserId(String userId);
     List<FileChunk> findByUserIdAndLastUpdatedAtBefore(String userId, LocalDateTime dateTime);
+
+    List<FileChunk> findByLastUpdatedAtBeforeOrderByLastUpdatedAtAscFileIdAsc(LocalDateTime cutoff, Pageable pageable);
+
+    // Keyset continuation after (afterTime, afterId); rows that could not be reaped stay behind the cursor
+    @Query("SELECT c FROM FileChunk c WHERE c.lastUpdatedAt < :cutoff AND " +
+            "(c.lastUpdatedAt > :afterTime OR (c.lastUpdatedAt = :afterTime AND c.fileId > :afterId)) " +
+            "ORDER BY c.lastUpdatedAt, c.fileId")
+    List<FileChunk> findStaleAfter(LocalDateTime cutoff, LocalDateTime afterTime, String afterId, Pageable pageable);
+
+    // One row: number of uploads in progress and the parts they have received so far
+    @Query("SELECT COUNT(c), COALESCE(SUM(c.receivedChunks), 0) FROM FileChunk c")
+    List<Object[]> summarizeUploads();
 }
@@ -0,0 +1,56 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.dto.FileMetadataResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last row of a page: its sort value (possibly null) and fileId.
+ * Encoded as an opaque URL-safe token so clients cannot depend on its layout.
+ */
+public record FileListCursor(FileListSort sort, Object value, String fileId) {
+
+    private static final String NULL_VALUE = "~";
+
+    public static FileListCursor after(FileListSort sort, FileMetadataResponse last) {
+        Object value = switch (sort) {
+            case LAST_MODIFIED -> last.getLastModifiedData();
+            case NAME -> last.getFileName();
+            case SIZE -> last.getFileSize();
+        };
+        return new FileListCursor(sort, value, last.getFileId());
+    }
+
+    public String encode() {
+        String encodedValue = value == null ? NULL_VALUE : encodePart(sort.formatValue(value));
+        return encodePart(sort.name()) + "." + encodedValue + "." + encodePart(fileId);
+    }
+
+    public static FileListCursor decode(String token, FileListSort expectedSort) {
+        try {
+            String[] parts = token.split("\\.", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+
+            FileListSort sort = FileListSort.valueOf(decodePart(parts[0]));
+            if (sort != expectedSort) {
+                throw new IllegalArgumentException("Cursor was issued for a different sort order");
+            }
+
+            Object value = NULL_VALUE.equals(parts[1]) ? null : sort.parseValue(decodePart(parts[1]));
+            return new FileListCursor(sort, value, decodePart(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+    }
+
+    private static String encodePart(String part) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(part.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String part) {
+        return new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8);
+    }
+}
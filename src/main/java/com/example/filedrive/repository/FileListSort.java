@@ -0,0 +1,52 @@
+package com.example.filedrive.repository;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Sort keys supported by keyset file listing. Every key is paired with fileId as a tie-breaker.
+ */
+public enum FileListSort {
+    LAST_MODIFIED("f.lastModifiedData"),
+    NAME("f.fileName"),
+    SIZE("f.fileSize");
+
+    private final String path;
+
+    FileListSort(String path) {
+        this.path = path;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public static FileListSort fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return LAST_MODIFIED;
+        }
+
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "lastmodified", "last_modified", "date" -> LAST_MODIFIED;
+            case "name" -> NAME;
+            case "size" -> SIZE;
+            default -> throw new IllegalArgumentException("Unsupported sort: " + value);
+        };
+    }
+
+    Object parseValue(String value) {
+        return switch (this) {
+            case LAST_MODIFIED -> new Date(Long.parseLong(value));
+            case NAME -> value;
+            case SIZE -> Long.parseLong(value);
+        };
+    }
+
+    String formatValue(Object value) {
+        return switch (this) {
+            case LAST_MODIFIED -> Long.toString(((Date) value).getTime());
+            case NAME -> (String) value;
+            case SIZE -> value.toString();
+        };
+    }
+}
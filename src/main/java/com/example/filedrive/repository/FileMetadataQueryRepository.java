@@ -0,0 +1,10 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.dto.FileMetadataResponse;
+
+import java.util.List;
+
+public interface FileMetadataQueryRepository {
+    List<FileMetadataResponse> findPage(String userId, String status, FileListSort sort, boolean ascending,
+                                        FileListCursor after, int limit);
+}
@@ -0,0 +1,60 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.dto.FileMetadataResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+/**
+ * Keyset listing straight into DTOs, so no FileMetadata or User entities are hydrated.
+ * Predicates follow MySQL's NULL ordering (NULLs sort first ascending, last descending),
+ * which keeps the ORDER BY index-friendly.
+ */
+public class FileMetadataQueryRepositoryImpl implements FileMetadataQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<FileMetadataResponse> findPage(String userId, String status, FileListSort sort, boolean ascending,
+                                               FileListCursor after, int limit) {
+        String key = sort.path();
+        String direction = ascending ? "ASC" : "DESC";
+
+        StringBuilder jpql = new StringBuilder()
+                .append("SELECT new com.example.filedrive.dto.FileMetadataResponse(")
+                .append("f.user.id, f.fileName, f.fileId, f.fileType, f.fileSize, f.s3Url, f.status, f.filePath, f.lastModifiedData) ")
+                .append("FROM FileMetadata f WHERE f.user.id = :userId AND f.status = :status");
+
+        if (after != null) {
+            if (after.value() == null) {
+                jpql.append(ascending
+                        ? " AND (" + key + " IS NOT NULL OR f.fileId > :cursorId)"
+                        : " AND (" + key + " IS NULL AND f.fileId < :cursorId)");
+            } else {
+                jpql.append(ascending
+                        ? " AND (" + key + " > :cursorValue OR (" + key + " = :cursorValue AND f.fileId > :cursorId))"
+                        : " AND (" + key + " < :cursorValue OR (" + key + " = :cursorValue AND f.fileId < :cursorId) OR " + key + " IS NULL)");
+            }
+        }
+
+        jpql.append(" ORDER BY ").append(key).append(' ').append(direction)
+                .append(", f.fileId ").append(direction);
+
+        TypedQuery<FileMetadataResponse> query = entityManager.createQuery(jpql.toString(), FileMetadataResponse.class)
+                .setParameter("userId", userId)
+                .setParameter("status", status)
+                .setMaxResults(limit);
+
+        if (after != null) {
+            query.setParameter("cursorId", after.fileId());
+            if (after.value() != null) {
+                query.setParameter("cursorValue", after.value());
+            }
+        }
+
+        return query.getResultList();
+    }
+}
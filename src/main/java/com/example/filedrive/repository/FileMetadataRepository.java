@@ -1,15 +1,64 @@
 package com.example.filedrive.repository;
 
+import com.example.filedrive.dto.FileMetadataResponse;
 import com.example.filedrive.model.FileMetadata;
 import com.example.filedrive.model.User;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
-public interface FileMetadataRepository extends CrudRepository<FileMetadata, String> {
+public interface FileMetadataRepository extends JpaRepository<FileMetadata, String>, FileMetadataQueryRepository {
     FileMetadata findByFileId(String fileId);
     List<FileMetadata> findByUser(User user);
     List<FileMetadata> findByUser_Id(String userId);
     List<FileMetadata> findByUser_IdAndStatus(String userId, String status);
     Integer user(User user);
+
+    @Query("SELECT new com.example.filedrive.dto.FileMetadataResponse(f.user.id, f.fileName, f.fileId, f.fileType, " +
+            "f.fileSize, f.s3Url, f.status, f.filePath, f.lastModifiedData) " +
+            "FROM FileMetadata f WHERE f.user.id = :userId AND f.status = :status")
+    List<FileMetadataResponse> findResponsesByUserIdAndStatus(String userId, String status);
+
+    // Only single-part uploads waiting on their object are completed by a notification; multipart and streamed
+    // uploads finish through their own transitions. Deduplicated uploads (content hash set) need blob
+    // bookkeeping and are handled one by one
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileMetadata f SET f.status = 'UPLOADED', f.s3Url = CONCAT(:urlPrefix, f.filePath) " +
+            "WHERE f.fileId IN :fileIds AND f.status = 'URL_GENERATED' AND f.contentHash IS NULL")
+    int markUploaded(Collection<String> fileIds, String urlPrefix);
+
+    // Conditional transitions: 0 rows means another request already moved the file on
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileMetadata f SET f.status = :to WHERE f.fileId = :fileId AND f.status = :from")
+    int transitionStatus(String fileId, String from, String to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileMetadata f SET f.status = :to, f.s3Url = :s3Url WHERE f.fileId = :fileId AND f.status = :from")
+    int transitionStatus(String fileId, String from, String to, String s3Url);
+
+    List<FileMetadata> findByFileIdInAndContentHashIsNotNullAndStatus(Collection<String> fileIds, String status);
+
+    // Single-part uploads still waiting on their object, created in [notBefore, cutoff), keyset-paged after (afterTime, afterId)
+    @Query("SELECT f FROM FileMetadata f WHERE f.status = 'URL_GENERATED' AND f.createdAt >= :notBefore AND f.createdAt < :cutoff AND " +
+            "(f.createdAt > :afterTime OR (f.createdAt = :afterTime AND f.fileId > :afterId)) " +
+            "ORDER BY f.createdAt, f.fileId")
+    List<FileMetadata> findUnconfirmedUploadsAfter(LocalDateTime notBefore, LocalDateTime cutoff,
+                                                   LocalDateTime afterTime, String afterId, Pageable pageable);
+
+    @Query("SELECT f FROM FileMetadata f JOIN FETCH f.user WHERE f.fileId IN :fileIds")
+    List<FileMetadata> findAllWithUserByFileIdIn(Collection<String> fileIds);
+
+    // Bulk statement: shares must already be gone, since cascades don't run
+    @Modifying
+    @Query("DELETE FROM FileMetadata f WHERE f.fileId IN :fileIds")
+    int deleteByFileIds(Collection<String> fileIds);
 }
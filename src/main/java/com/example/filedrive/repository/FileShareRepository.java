@@ -1,11 +1,30 @@
 package com.example.filedrive.repository;
 
+import com.example.filedrive.dto.FileMetadataResponse;
 import com.example.filedrive.model.FileMetadata;
 import com.example.filedrive.model.FileShare;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface FileShareRepository extends CrudRepository<FileShare, Integer> {
     List<FileShare> findByUserId(String userId);
+
+    @Query("SELECT new com.example.filedrive.dto.FileMetadataResponse(s.userId, m.fileName, m.fileId, m.fileType, " +
+            "m.fileSize, m.s3Url, m.status, m.filePath, m.lastModifiedData) " +
+            "FROM FileShare s JOIN s.fileMetadata m WHERE s.userId = :userId ORDER BY s.createdAt DESC, s.id DESC")
+    List<FileMetadataResponse> findSharedWithUser(String userId, Pageable pageable);
+
+    // Rows of [fileId, userId] for the pairs that are already shared
+    @Query("SELECT s.fileMetadata.fileId, s.userId FROM FileShare s " +
+            "WHERE s.fileMetadata.fileId IN :fileIds AND s.userId IN :userIds")
+    List<Object[]> findExistingPairs(Collection<String> fileIds, Collection<String> userIds);
+
+    @Modifying
+    @Query("DELETE FROM FileShare s WHERE s.fileMetadata.fileId IN :fileIds")
+    int deleteByFileIds(Collection<String> fileIds);
 }
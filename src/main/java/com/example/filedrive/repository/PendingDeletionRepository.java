@@ -0,0 +1,22 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.model.PendingDeletion;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PendingDeletionRepository extends JpaRepository<PendingDeletion, Long> {
+
+    // Lock timeout -2 is SKIP LOCKED, so several instances can drain without waiting on each other's batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM PendingDeletion d WHERE d.notBefore <= :now ORDER BY d.notBefore, d.id")
+    List<PendingDeletion> findDueForUpdate(LocalDateTime now, Pageable pageable);
+}
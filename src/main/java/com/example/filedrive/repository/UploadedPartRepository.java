@@ -0,0 +1,25 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.model.UploadedPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UploadedPartRepository extends JpaRepository<UploadedPart, UploadedPart.Key> {
+
+    List<UploadedPart> findByFileIdOrderByChunkNumber(String fileId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadedPart p WHERE p.fileId = :fileId")
+    int deleteByFileId(String fileId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM UploadedPart p WHERE p.fileId IN :fileIds")
+    int deleteByFileIdIn(Collection<String> fileIds);
+}
@@ -1,6 +1,8 @@
 package com.example.filedrive.repository;
 
+import com.example.filedrive.dto.SearchUser;
 import com.example.filedrive.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
@@ -9,5 +11,9 @@ import java.util.List;
 public interface UserRepository extends CrudRepository<User, String> {
     @Query("SELECT DISTINCT u FROM User u WHERE u.email LIKE %:email% OR u.name LIKE %:name%")
     List<User> findDistinctByEmailContainingOrNameContaining(
-            String email, String name);
+            String email, String name, Pageable pageable);
+
+    @Query("SELECT new com.example.filedrive.dto.SearchUser(u.name, u.email, u.id) FROM User u " +
+            "WHERE u.id > :afterId ORDER BY u.id")
+    List<SearchUser> findSearchUsersAfter(String afterId, Pageable pageable);
 }
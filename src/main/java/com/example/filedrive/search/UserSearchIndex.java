@@ -0,0 +1,272 @@
+package com.example.filedrive.search;
+
+import com.example.filedrive.dto.SearchUser;
+import com.example.filedrive.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory index over user names and emails for the share dialog. It matches any substring of
+ * the name or email, the same as the database search used while the index is still building.
+ * <p>
+ * Prefix postings are stored as {@code token + '\0' + userId} in sorted sets, so a prefix lookup is
+ * one range scan that stops after {@code limit} hits. Whole-name and whole-email matches rank before
+ * matches on individual words (first name, last name, email local-part pieces), and both rank
+ * before infix matches. Infix matches come from n-gram postings of up to three characters: shorter
+ * keywords are looked up directly, longer ones scan the users under their rarest trigram and keep
+ * those whose name or email contains the keyword.
+ */
+@Component
+public class UserSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+    private static final char SEPARATOR = '\0';
+    private static final int GRAM_LENGTH = 3;
+
+    private final UserRepository userRepository;
+    private final int rebuildPageSize;
+
+    private final ConcurrentHashMap<String, SearchUser> users = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> fullTokens = new ConcurrentSkipListSet<>();
+    private final ConcurrentSkipListSet<String> wordTokens = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, Set<String>> gramPostings = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @Autowired
+    public UserSearchIndex(UserRepository userRepository,
+                           @Value("${application.user-search.rebuild-page-size:5000}") int rebuildPageSize) {
+        this.userRepository = userRepository;
+        this.rebuildPageSize = rebuildPageSize;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        Thread rebuild = new Thread(this::rebuild, "user-search-rebuild");
+        rebuild.setDaemon(true);
+        rebuild.start();
+    }
+
+    public void rebuild() {
+        long started = System.nanoTime();
+        String afterId = "";
+        int indexed = 0;
+        try {
+            while (true) {
+                List<SearchUser> page = userRepository.findSearchUsersAfter(afterId, PageRequest.of(0, rebuildPageSize));
+                for (SearchUser user : page) {
+                    // Users saved while the rebuild runs are already newer than the snapshot
+                    users.computeIfAbsent(user.getUserId(), id -> {
+                        addPostings(user);
+                        return user;
+                    });
+                }
+                indexed += page.size();
+                if (page.size() < rebuildPageSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getUserId();
+            }
+            ready = true;
+            logger.info("User search index built with {} users in {} ms", indexed, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Failed to build user search index, falling back to database search: {}", e.getMessage(), e);
+        }
+    }
+
+    public void upsert(String userId, String name, String email) {
+        SearchUser updated = new SearchUser(name, email, userId);
+        // compute() serialises updates per user so postings never interleave
+        users.compute(userId, (id, previous) -> {
+            if (previous != null) {
+                removePostings(previous);
+            }
+            addPostings(updated);
+            return updated;
+        });
+    }
+
+    public void remove(String userId) {
+        users.computeIfPresent(userId, (id, previous) -> {
+            removePostings(previous);
+            return null;
+        });
+    }
+
+    public List<SearchUser> search(String keyword, int limit) {
+        String prefix = normalize(keyword);
+        if (prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<String> matches = new LinkedHashSet<>();
+        collect(fullTokens, prefix, matches, limit);
+        if (matches.size() < limit) {
+            collect(wordTokens, prefix, matches, limit);
+        }
+        if (matches.size() < limit) {
+            collectInfix(prefix, matches, limit);
+        }
+
+        List<SearchUser> results = new ArrayList<>(matches.size());
+        for (String userId : matches) {
+            SearchUser user = users.get(userId);
+            if (user != null) {
+                results.add(user);
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    private static void collect(ConcurrentSkipListSet<String> postings, String prefix, Set<String> matches, int limit) {
+        for (String posting : postings.subSet(prefix, true, prefix + Character.MAX_VALUE, false)) {
+            matches.add(posting.substring(posting.indexOf(SEPARATOR) + 1));
+            if (matches.size() >= limit) {
+                return;
+            }
+        }
+    }
+
+    private void collectInfix(String keyword, Set<String> matches, int limit) {
+        if (keyword.length() <= GRAM_LENGTH) {
+            for (String userId : gramPostings.getOrDefault(keyword, Set.of())) {
+                matches.add(userId);
+                if (matches.size() >= limit) {
+                    return;
+                }
+            }
+            return;
+        }
+
+        Set<String> candidates = null;
+        for (int i = 0; i + GRAM_LENGTH <= keyword.length(); i++) {
+            Set<String> posting = gramPostings.get(keyword.substring(i, i + GRAM_LENGTH));
+            if (posting == null) {
+                return;
+            }
+            if (candidates == null || posting.size() < candidates.size()) {
+                candidates = posting;
+            }
+        }
+        for (String userId : candidates) {
+            SearchUser user = users.get(userId);
+            if (user != null && !matches.contains(userId)
+                    && (normalize(user.getName()).contains(keyword) || normalize(user.getEmail()).contains(keyword))) {
+                matches.add(userId);
+                if (matches.size() >= limit) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void addPostings(SearchUser user) {
+        for (String token : fullTokensOf(user)) {
+            fullTokens.add(token + SEPARATOR + user.getUserId());
+        }
+        for (String token : wordTokensOf(user)) {
+            wordTokens.add(token + SEPARATOR + user.getUserId());
+        }
+        for (String gram : gramsOf(user)) {
+            // Added inside compute() so a concurrent removal cannot drop the set under us
+            gramPostings.compute(gram, (g, userIds) -> {
+                Set<String> posting = userIds != null ? userIds : ConcurrentHashMap.newKeySet();
+                posting.add(user.getUserId());
+                return posting;
+            });
+        }
+    }
+
+    private void removePostings(SearchUser user) {
+        for (String token : fullTokensOf(user)) {
+            fullTokens.remove(token + SEPARATOR + user.getUserId());
+        }
+        for (String token : wordTokensOf(user)) {
+            wordTokens.remove(token + SEPARATOR + user.getUserId());
+        }
+        for (String gram : gramsOf(user)) {
+            gramPostings.computeIfPresent(gram, (g, userIds) -> {
+                userIds.remove(user.getUserId());
+                return userIds.isEmpty() ? null : userIds;
+            });
+        }
+    }
+
+    private static Set<String> fullTokensOf(SearchUser user) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addIfPresent(tokens, normalize(user.getName()));
+        addIfPresent(tokens, normalize(user.getEmail()));
+        return tokens;
+    }
+
+    private static Set<String> wordTokensOf(SearchUser user) {
+        Set<String> tokens = new LinkedHashSet<>();
+        String name = normalize(user.getName());
+        for (String word : name.split("[^\\p{L}\\p{N}]+")) {
+            addIfPresent(tokens, word);
+        }
+
+        String email = normalize(user.getEmail());
+        int at = email.indexOf('@');
+        if (at > 0) {
+            String localPart = email.substring(0, at);
+            addIfPresent(tokens, localPart);
+            for (String word : localPart.split("[._+\\-]+")) {
+                addIfPresent(tokens, word);
+            }
+            addIfPresent(tokens, email.substring(at + 1));
+        }
+
+        // Whole values already live in the full-token set
+        tokens.remove(name);
+        tokens.remove(email);
+        return tokens;
+    }
+
+    // Every substring of one to three characters of the whole name and email
+    private static Set<String> gramsOf(SearchUser user) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String value : fullTokensOf(user)) {
+            for (int start = 0; start < value.length(); start++) {
+                for (int end = start + 1; end <= Math.min(start + GRAM_LENGTH, value.length()); end++) {
+                    grams.add(value.substring(start, end));
+                }
+            }
+        }
+        return grams;
+    }
+
+    private static void addIfPresent(Set<String> tokens, String token) {
+        if (!token.isEmpty()) {
+            tokens.add(token);
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().toLowerCase(Locale.ROOT).replace(SEPARATOR, ' ');
+    }
+}
@@ -1,8 +1,6 @@
 package com.example.filedrive.security;
 
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.FirebaseToken;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +17,12 @@ import java.util.Collections;
 @Component
 public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
 
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    public FirebaseAuthenticationFilter(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
                                     FilterChain filterChain) throws ServletException, IOException {
@@ -27,18 +31,21 @@ public class FirebaseAuthenticationFilter extends OncePerRequestFilter {
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             String token = authorizationHeader.substring(7);
             try {
-                FirebaseToken decodedToken = FirebaseAuth.getInstance().verifyIdToken(token);
-                String uid = decodedToken.getUid();
-
-                // Create authenticated user
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                uid,
-                                null,
-                                Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
-                        );
-
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                String uid = verifiedTokenCache.verify(token);
+                if (uid != null) {
+                    // Create authenticated user
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    uid,
+                                    null,
+                                    Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER"))
+                            );
+
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                } else {
+                    // Token was revoked locally
+                    SecurityContextHolder.clearContext();
+                }
             } catch (FirebaseAuthException e) {
                 SecurityContextHolder.clearContext();
             }
@@ -0,0 +1,187 @@
+package com.example.filedrive.security;
+
+import com.example.filedrive.cache.CacheInvalidationBus;
+import com.example.filedrive.cache.ExpiringCache;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.FirebaseToken;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the result of Firebase ID token verification so a burst of requests carrying the same
+ * token pays for the RSA and revocation checks once. Entries are keyed by a SHA-256 of the token
+ * (the raw token is never stored) and expire at the token's own {@code exp} claim.
+ * <p>
+ * Revocation markers are kept apart from the cache and are never evicted, only dropped once every
+ * token they could match has expired. They go out on the {@link CacheInvalidationBus}; the default
+ * {@link com.example.filedrive.cache.LocalCacheInvalidationBus} does not leave the JVM, so a
+ * single-token sign-out only holds on the instance that handled it. A user revocation is also
+ * recorded in Firebase, which other instances consult whenever they verify a token they have not
+ * cached yet; tokens they already cached keep working there until they expire.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    static final String REVOKED_TOKENS_REGION = "revoked-tokens";
+    static final String REVOKED_USERS_REGION = "revoked-users";
+
+    // Firebase ID tokens are valid for one hour, so revocation markers never need to outlive that
+    private static final long MAX_TOKEN_LIFETIME_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private final ExpiringCache<String, VerifiedToken> verifiedTokens;
+    // Token hash -> expiry of the revoked token, in millis
+    private final ConcurrentHashMap<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // Uid -> revocation time, in seconds like the iat claim
+    private final ConcurrentHashMap<String, Long> revokedUsers = new ConcurrentHashMap<>();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    private final CacheInvalidationBus cacheInvalidationBus;
+
+    public VerifiedTokenCache(CacheInvalidationBus cacheInvalidationBus,
+                              @Value("${application.auth.token-cache.max-entries:100000}") int maxEntries) {
+        this.verifiedTokens = new ExpiringCache<>(maxEntries);
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        cacheInvalidationBus.subscribe(REVOKED_TOKENS_REGION, keys -> keys.forEach(this::applyTokenRevocation));
+        cacheInvalidationBus.subscribe(REVOKED_USERS_REGION, uids -> uids.forEach(this::applyUserRevocation));
+    }
+
+    /**
+     * Returns the uid the token was issued to, or null if the token has been revoked here.
+     */
+    @Timed("filedrive.auth.verify")
+    public String verify(String idToken) throws FirebaseAuthException {
+        String key = hash(idToken);
+        if (revokedTokens.containsKey(key)) {
+            rejections.increment();
+            return null;
+        }
+
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (isRevoked(cached)) {
+                verifiedTokens.invalidate(key);
+                rejections.increment();
+                return null;
+            }
+            return cached.uid();
+        }
+
+        verifications.increment();
+        FirebaseToken decoded;
+        try {
+            // checkRevoked catches revocations made on other instances or before a restart
+            decoded = FirebaseAuth.getInstance().verifyIdToken(idToken, true);
+        } catch (FirebaseAuthException e) {
+            if (e.getAuthErrorCode() == AuthErrorCode.REVOKED_ID_TOKEN || e.getAuthErrorCode() == AuthErrorCode.USER_DISABLED) {
+                rejections.increment();
+                return null;
+            }
+            throw e;
+        }
+        VerifiedToken verified = new VerifiedToken(
+                decoded.getUid(),
+                claimSeconds(decoded, "iat", 0L),
+                claimSeconds(decoded, "exp", 0L) * 1000);
+        if (isRevoked(verified)) {
+            rejections.increment();
+            return null;
+        }
+
+        verifiedTokens.put(key, verified, verified.expiresAtMillis());
+        return verified.uid();
+    }
+
+    public void revokeToken(String idToken) {
+        cacheInvalidationBus.publish(REVOKED_TOKENS_REGION, List.of(hash(idToken)));
+    }
+
+    /**
+     * Rejects every token issued to the user up to now, e.g. after
+     * {@code FirebaseAuth.revokeRefreshTokens(uid)} or disabling the account.
+     */
+    public void revokeUser(String uid) {
+        cacheInvalidationBus.publish(REVOKED_USERS_REGION, List.of(uid));
+    }
+
+    private void applyTokenRevocation(String key) {
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(key);
+        long expiresAt = cached != null ? cached.expiresAtMillis() : now + MAX_TOKEN_LIFETIME_MILLIS;
+        revokedTokens.put(key, expiresAt);
+        verifiedTokens.invalidate(key);
+        purgeExpiredRevocations(now);
+    }
+
+    private void applyUserRevocation(String uid) {
+        long now = System.currentTimeMillis();
+        revokedUsers.put(uid, TimeUnit.MILLISECONDS.toSeconds(now));
+        purgeExpiredRevocations(now);
+    }
+
+    // A marker only matters while a token it matches can still be valid, which is at most one hour
+    private void purgeExpiredRevocations(long now) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        long oldestRelevantSeconds = TimeUnit.MILLISECONDS.toSeconds(now - MAX_TOKEN_LIFETIME_MILLIS);
+        revokedUsers.values().removeIf(revokedAt -> revokedAt < oldestRelevantSeconds);
+    }
+
+    public int size() {
+        return verifiedTokens.size();
+    }
+
+    public long getHitCount() {
+        return verifiedTokens.getHitCount();
+    }
+
+    public long getMissCount() {
+        return verifiedTokens.getMissCount();
+    }
+
+    public long getVerificationCount() {
+        return verifications.sum();
+    }
+
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    private boolean isRevoked(VerifiedToken token) {
+        Long revokedAt = revokedUsers.get(token.uid());
+        return revokedAt != null && token.issuedAtSeconds() <= revokedAt;
+    }
+
+    private static long claimSeconds(FirebaseToken token, String claim, long defaultValue) {
+        Object value = token.getClaims().get(claim);
+        return value instanceof Number number ? number.longValue() : defaultValue;
+    }
+
+    private static String hash(String token) {
+        MessageDigest digest = SHA_256.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private record VerifiedToken(String uid, long issuedAtSeconds, long expiresAtMillis) {
+    }
+}
@@ -1,29 +1,74 @@
 package com.example.filedrive.service;
 
+import com.example.filedrive.cache.CacheInvalidationBus;
+import com.example.filedrive.cache.HotObjectCache;
+import com.example.filedrive.cache.ReadThroughCache;
+import com.example.filedrive.dto.BulkDeleteResponse;
+import com.example.filedrive.dto.FileMetadataResponse;
 import com.example.filedrive.model.FileMetadata;
+import com.example.filedrive.model.FileMetadataSnapshot;
 import com.example.filedrive.model.FileShare;
 import com.example.filedrive.model.FileStatus;
+import com.example.filedrive.repository.FileListCursor;
+import com.example.filedrive.repository.FileListSort;
 import com.example.filedrive.repository.FileMetadataRepository;
 import com.example.filedrive.repository.FileShareRepository;
+import com.example.filedrive.storage.StorageBackend;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class DatabaseService {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseService.class);
+
     private FileMetadataRepository fileMetadataRepository;
     private FileShareRepository fileShareRepository;
-    private S3Service s3Service;
+    private StorageBackend storageBackend;
+    private FileBlobService fileBlobService;
+    private PendingDeletionService pendingDeletionService;
+    private CacheInvalidationBus cacheInvalidationBus;
+    private HotObjectCache hotObjectCache;
+    private final ReadThroughCache<String, FileMetadataSnapshot> metadataCache;
+
+    static final String METADATA_CACHE_REGION = "file-metadata";
 
     @Autowired
-    public DatabaseService(FileMetadataRepository fileMetadataRepository, FileShareRepository fileShareRepository, S3Service s3Service) {
+    public DatabaseService(FileMetadataRepository fileMetadataRepository, FileShareRepository fileShareRepository, StorageBackend storageBackend,
+                           FileBlobService fileBlobService, PendingDeletionService pendingDeletionService,
+                           CacheInvalidationBus cacheInvalidationBus, HotObjectCache hotObjectCache,
+                           @Value("${application.cache.file-metadata.max-entries:100000}") int metadataCacheMaxEntries,
+                           @Value("${application.cache.file-metadata.ttl-seconds:60}") long metadataTtlSeconds) {
         this.fileMetadataRepository = fileMetadataRepository;
         this.fileShareRepository = fileShareRepository;
-        this.s3Service = s3Service;
+        this.storageBackend = storageBackend;
+        this.fileBlobService = fileBlobService;
+        this.pendingDeletionService = pendingDeletionService;
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.hotObjectCache = hotObjectCache;
+        this.metadataCache = new ReadThroughCache<>(metadataCacheMaxEntries, metadataTtlSeconds * 1000);
+        cacheInvalidationBus.subscribe(METADATA_CACHE_REGION, fileIds -> fileIds.forEach(metadataCache::invalidate));
     }
 
+    @Timed("filedrive.database")
     public boolean createFileMetadata(FileMetadata fileMetadata) {
         try {
             fileMetadataRepository.save(fileMetadata);
@@ -34,41 +79,264 @@ public class DatabaseService {
         }
     }
 
+    @Timed("filedrive.database")
     public boolean updateFileMetadata(FileMetadata fileMetadata) {
         fileMetadataRepository.save(fileMetadata);
+        invalidateMetadata(List.of(fileMetadata.getFileId()));
         return true;
     }
 
+    /**
+     * Moves a file from one status to another if it is still in the expected one.
+     * Returns false when a concurrent request got there first.
+     */
+    @Timed("filedrive.database")
+    public boolean transitionStatus(String uniqueFileId, FileStatus from, FileStatus to) {
+        int updated = fileMetadataRepository.transitionStatus(uniqueFileId, from.toString(), to.toString());
+        invalidateMetadata(List.of(uniqueFileId));
+        return updated > 0;
+    }
+
+    @Timed("filedrive.database")
+    public boolean transitionStatus(String uniqueFileId, FileStatus from, FileStatus to, String s3Url) {
+        int updated = fileMetadataRepository.transitionStatus(uniqueFileId, from.toString(), to.toString(), s3Url);
+        invalidateMetadata(List.of(uniqueFileId));
+        return updated > 0;
+    }
+
+    @Timed("filedrive.database")
+    public int markUploaded(Collection<String> fileIds, String s3UrlPrefix) {
+        int updated = fileMetadataRepository.markUploaded(fileIds, s3UrlPrefix);
+        invalidateMetadata(fileIds);
+        return updated;
+    }
+
+    @Timed("filedrive.database")
+    public List<FileMetadata> getUnfinishedDeduplicatedFiles(Collection<String> fileIds) {
+        return fileMetadataRepository.findByFileIdInAndContentHashIsNotNullAndStatus(fileIds, FileStatus.URL_GENERATED.toString());
+    }
+
+    @Timed("filedrive.database")
+    public List<FileMetadata> getFilesWithOwner(Collection<String> uniqueFileIds) {
+        return fileMetadataRepository.findAllWithUserByFileIdIn(uniqueFileIds);
+    }
+
+    // Uncached managed entity, for callers that are about to modify and save it
+    @Timed("filedrive.database")
     public FileMetadata getFileMetadata(String uniqueFileId) {
         return fileMetadataRepository.findByFileId(uniqueFileId);
     }
 
-    public List<FileMetadata> getAllFiles(String userId){
-        return fileMetadataRepository.findByUser_IdAndStatus(userId, FileStatus.UPLOADED.toString());
+    // Cached read-only view; concurrent misses for the same file share one query
+    @Timed("filedrive.database")
+    public FileMetadataSnapshot getFileMetadataSnapshot(String uniqueFileId) {
+        return metadataCache.get(uniqueFileId, this::loadSnapshot);
+    }
+
+    // Bypasses the cache, e.g. to re-check a status that looked wrong in a possibly stale snapshot
+    @Timed("filedrive.database")
+    public FileMetadataSnapshot refreshFileMetadataSnapshot(String uniqueFileId) {
+        metadataCache.invalidate(uniqueFileId);
+        return getFileMetadataSnapshot(uniqueFileId);
+    }
+
+    // Lazy reference for foreign keys; no query is issued
+    @Timed("filedrive.database")
+    public FileMetadata getFileReference(String uniqueFileId) {
+        return fileMetadataRepository.getReferenceById(uniqueFileId);
+    }
+
+    @Timed("filedrive.database")
+    public String getFilePath(String uniqueFileId) {
+        FileMetadataSnapshot snapshot = getFileMetadataSnapshot(uniqueFileId);
+        return snapshot != null ? snapshot.filePath() : null;
+    }
+
+    public ReadThroughCache<String, FileMetadataSnapshot> getMetadataCache() {
+        return metadataCache;
+    }
+
+    private FileMetadataSnapshot loadSnapshot(String uniqueFileId) {
+        FileMetadata fileMetadata = fileMetadataRepository.findByFileId(uniqueFileId);
+        return fileMetadata != null ? FileMetadataSnapshot.of(fileMetadata) : null;
+    }
+
+    /**
+     * Drops the cached snapshots right away. Inside a transaction the other instances are told after
+     * commit, and the local entries are dropped once more then, in case a reader re-cached the old row
+     * before the commit became visible.
+     */
+    private void invalidateMetadata(Collection<String> fileIds) {
+        if (fileIds.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = List.copyOf(fileIds);
+        keys.forEach(metadataCache::invalidate);
+        publishAfterCompletion(METADATA_CACHE_REGION, keys);
+    }
+
+    // Cached copies of deleted objects; other instances only hear of it through a broadcasting bus
+    private void invalidateHotObjects(Collection<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = List.copyOf(objectKeys);
+        keys.forEach(hotObjectCache::invalidate);
+        publishAfterCompletion(HotObjectCache.INVALIDATION_REGION, keys);
+    }
+
+    private void publishAfterCompletion(String region, List<String> keys) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cacheInvalidationBus.publish(region, keys);
+                }
+            });
+        } else {
+            cacheInvalidationBus.publish(region, keys);
+        }
     }
 
+    @Timed("filedrive.database")
+    public List<FileMetadataResponse> getAllFiles(String userId){
+        return fileMetadataRepository.findResponsesByUserIdAndStatus(userId, FileStatus.UPLOADED.toString());
+    }
+
+    @Timed("filedrive.database")
+    public List<FileMetadataResponse> getFilesPage(String userId, FileListSort sort, boolean ascending, FileListCursor after, int limit) {
+        return fileMetadataRepository.findPage(userId, FileStatus.UPLOADED.toString(), sort, ascending, after, limit);
+    }
+
+    @Timed("filedrive.database")
     public Boolean shareFile(List<FileShare> fileShareList) {
-        fileShareRepository.saveAll(fileShareList);
+        insertNewShares(fileShareList);
         return true;
     }
 
-    public List<FileShare> getAllFileShares(String userId) {
-        return fileShareRepository.findByUserId(userId);
+    /**
+     * Inserts the shares that don't exist yet and returns how many were created. The insert is one
+     * JDBC batch; if a concurrent request shared the same pair in between, the unique key rejects the
+     * batch and it is retried once against a fresh view of the existing pairs.
+     */
+    @Timed("filedrive.database")
+    public int insertNewShares(List<FileShare> fileShareList) {
+        for (int attempt = 0; ; attempt++) {
+            List<FileShare> newShares = withoutExistingShares(fileShareList);
+            if (newShares.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                fileShareRepository.saveAll(newShares);
+                return newShares.size();
+            } catch (DataIntegrityViolationException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+                // Ids were handed out to the rolled back rows; let the retry persist them as new
+                newShares.forEach(share -> share.setId(null));
+            }
+        }
+    }
+
+    private List<FileShare> withoutExistingShares(List<FileShare> fileShareList) {
+        Set<String> fileIds = new HashSet<>();
+        Set<String> userIds = new HashSet<>();
+        for (FileShare share : fileShareList) {
+            fileIds.add(share.getFileMetadata().getFileId());
+            userIds.add(share.getUserId());
+        }
+
+        Set<List<String>> taken = new HashSet<>();
+        for (Object[] pair : fileShareRepository.findExistingPairs(fileIds, userIds)) {
+            taken.add(List.of((String) pair[0], (String) pair[1]));
+        }
+
+        List<FileShare> newShares = new ArrayList<>();
+        for (FileShare share : fileShareList) {
+            // add() also drops repeats within the request itself
+            if (taken.add(List.of(share.getFileMetadata().getFileId(), share.getUserId()))) {
+                newShares.add(share);
+            }
+        }
+        return newShares;
+    }
+
+    @Timed("filedrive.database")
+    public List<FileMetadataResponse> getAllFileShares(String userId, Pageable pageable) {
+        return fileShareRepository.findSharedWithUser(userId, pageable);
+    }
+
+    /**
+     * Deletes the given files of one owner in a single transaction: one IN query to load them, one
+     * statement each for shares and metadata, and one batched insert of the S3 keys to delete.
+     */
+    @Transactional
+    @Timed("filedrive.database")
+    public Map<String, BulkDeleteResponse.Status> deleteFiles(String userId, Collection<String> uniqueFileIds) {
+        Map<String, BulkDeleteResponse.Status> results = new LinkedHashMap<>();
+        for (String fileId : uniqueFileIds) {
+            results.put(fileId, BulkDeleteResponse.Status.NOT_FOUND);
+        }
+
+        List<FileMetadata> owned = new ArrayList<>();
+        for (FileMetadata fileMetadata : fileMetadataRepository.findAllWithUserByFileIdIn(results.keySet())) {
+            if (userId.equals(fileMetadata.getUser().getId())) {
+                owned.add(fileMetadata);
+                results.put(fileMetadata.getFileId(), BulkDeleteResponse.Status.DELETED);
+            } else {
+                results.put(fileMetadata.getFileId(), BulkDeleteResponse.Status.FORBIDDEN);
+            }
+        }
+        if (owned.isEmpty()) {
+            return results;
+        }
+
+        List<String> ownedIds = owned.stream().map(FileMetadata::getFileId).toList();
+        fileShareRepository.deleteByFileIds(ownedIds);
+        fileMetadataRepository.deleteByFileIds(ownedIds);
+        invalidateMetadata(ownedIds);
+
+        List<String> orphanedKeys = new ArrayList<>();
+        for (FileMetadata fileMetadata : owned) {
+            // Deduplicated content may still be referenced by other files
+            if (fileBlobService.release(fileMetadata)) {
+                orphanedKeys.add(fileMetadata.getFilePath());
+            }
+        }
+        pendingDeletionService.enqueueAll(orphanedKeys.stream().distinct().toList());
+        orphanedKeys.forEach(storageBackend::evictDownloadUrls);
+        invalidateHotObjects(orphanedKeys);
+        return results;
     }
 
+    // The S3 object is queued for deletion in the same transaction; the drainer removes it later
+    @Transactional
+    @Timed("filedrive.database")
     public boolean deleteFile(String uniqueFileId) {
         try {
             FileMetadata fileMetadata = fileMetadataRepository.findByFileId(uniqueFileId);
             if (fileMetadata != null) {
                 fileMetadataRepository.deleteById(uniqueFileId);
-                s3Service.deleteFile(fileMetadata.getFilePath());
-
+                invalidateMetadata(List.of(uniqueFileId));
+                if (!fileBlobService.release(fileMetadata)) {
+                    // Other files still reference the same content
+                    return true;
+                }
+                storageBackend.evictDownloadUrls(fileMetadata.getFilePath());
+                invalidateHotObjects(List.of(fileMetadata.getFilePath()));
+                pendingDeletionService.enqueue(fileMetadata.getFilePath());
                 return true;
             } else {
                 return false;
             }
         } catch (Exception e) {
-            System.out.println(e.getMessage());
+            logger.error("Error deleting file {}: {}", uniqueFileId, e.getMessage(), e);
+            // Never commit the row delete without its pending deletion
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
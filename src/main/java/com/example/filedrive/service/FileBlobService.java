@@ -0,0 +1,126 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.model.FileBlob;
+import com.example.filedrive.model.FileMetadata;
+import com.example.filedrive.model.FileStatus;
+import com.example.filedrive.repository.FileBlobRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+@Service
+public class FileBlobService {
+
+    private static final Pattern SHA256_HEX = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    public FileBlobService(FileBlobRepository fileBlobRepository) {
+        this.fileBlobRepository = fileBlobRepository;
+    }
+
+    public static String normalizeContentHash(String contentHash) {
+        if (contentHash == null || contentHash.isBlank()) {
+            return null;
+        }
+
+        String normalized = contentHash.trim().toLowerCase(Locale.ROOT);
+        if (!SHA256_HEX.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("contentHash must be a hex encoded SHA-256 digest");
+        }
+        return normalized;
+    }
+
+    public static String toChecksumHeader(String contentHash) {
+        return Base64.getEncoder().encodeToString(HexFormat.of().parseHex(contentHash));
+    }
+
+    /**
+     * Takes a reference on one of the user's existing blobs, or returns null when the user has no
+     * live blob with this hash.
+     */
+    public FileBlob acquire(String userId, String contentHash) {
+        if (fileBlobRepository.incrementRefCount(userId, contentHash) == 0) {
+            return null;
+        }
+
+        FileBlob blob = fileBlobRepository.findById(new FileBlob.Key(userId, contentHash)).orElse(null);
+        if (blob == null) {
+            // Deleted between the increment and the read; nothing left to hold on to
+            return null;
+        }
+        return blob;
+    }
+
+    /**
+     * Records a freshly uploaded file as its owner's blob for its hash. If another upload by the
+     * same user registered the same content first, the file is re-pointed at that blob and its own
+     * object path is returned so the caller can delete the duplicate bytes; otherwise returns null.
+     */
+    public String register(FileMetadata fileMetadata) {
+        String contentHash = fileMetadata.getContentHash();
+        if (contentHash == null) {
+            return null;
+        }
+
+        String userId = fileMetadata.getUser().getId();
+        for (int attempt = 0; attempt < 2; attempt++) {
+            if (fileBlobRepository.incrementRefCount(userId, contentHash) > 0) {
+                FileBlob existing = fileBlobRepository.findById(new FileBlob.Key(userId, contentHash)).orElse(null);
+                if (existing == null) {
+                    return null;
+                }
+                if (existing.getFilePath().equals(fileMetadata.getFilePath())) {
+                    // Already registered by this file; undo the extra reference
+                    fileBlobRepository.decrementRefCount(userId, contentHash);
+                    return null;
+                }
+
+                String duplicatePath = fileMetadata.getFilePath();
+                fileMetadata.setFilePath(existing.getFilePath());
+                return duplicatePath;
+            }
+
+            FileBlob blob = new FileBlob();
+            blob.setUserId(userId);
+            blob.setContentHash(contentHash);
+            blob.setFilePath(fileMetadata.getFilePath());
+            blob.setFileSize(fileMetadata.getFileSize());
+            blob.setRefCount(1);
+            try {
+                fileBlobRepository.save(blob);
+                return null;
+            } catch (DataIntegrityViolationException e) {
+                // Lost the insert race to a concurrent upload of the same content; link to it instead
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the reference held by a file that is being deleted. Returns true when the file's
+     * object is no longer referenced by anything and may be removed from storage.
+     */
+    public boolean release(FileMetadata fileMetadata) {
+        String contentHash = fileMetadata.getContentHash();
+        if (contentHash == null || !FileStatus.UPLOADED.toString().equals(fileMetadata.getStatus())) {
+            return true;
+        }
+
+        String userId = fileMetadata.getUser().getId();
+        FileBlob blob = fileBlobRepository.findById(new FileBlob.Key(userId, contentHash)).orElse(null);
+        if (blob == null || !blob.getFilePath().equals(fileMetadata.getFilePath())) {
+            // The file was never linked to the blob, so it owns its object outright
+            return true;
+        }
+
+        fileBlobRepository.decrementRefCount(userId, contentHash);
+        return fileBlobRepository.deleteIfUnreferenced(userId, contentHash) > 0;
+    }
+}
@@ -4,7 +4,10 @@ import com.example.filedrive.dto.FileChunkStatusResponse;
 import com.example.filedrive.dto.ResumeUploadRequest;
 import com.example.filedrive.dto.ResumeUploadResponse;
 import com.example.filedrive.model.FileChunk;
+import com.example.filedrive.model.UploadedPart;
 import com.example.filedrive.repository.FileChunkRepository;
+import com.example.filedrive.repository.UploadedPartRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,17 +15,22 @@ import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
+@Timed("filedrive.upload.state")
 public class FileChunkService {
     private final FileChunkRepository fileChunkRepository;
+    private final UploadedPartRepository uploadedPartRepository;
 
     @Autowired
-    public FileChunkService(FileChunkRepository uploadStateRepository) {
+    public FileChunkService(FileChunkRepository uploadStateRepository, UploadedPartRepository uploadedPartRepository) {
         this.fileChunkRepository = uploadStateRepository;
+        this.uploadedPartRepository = uploadedPartRepository;
     }
 
     @Transactional
@@ -39,23 +47,10 @@ public class FileChunkService {
         fileChunkRepository.save(state);
     }
 
-    @Transactional
-    public void updateUploadedChunk(String fileId, Integer ChunkNumber, String eTag) {
-        Optional<FileChunk> stateOpt = fileChunkRepository.findById(fileId);
-        if (stateOpt.isPresent()) {
-            FileChunk state = stateOpt.get();
-
-            boolean ChunkExists = state.getUploadedChunk().stream()
-                    .anyMatch(Chunk -> Chunk.getChunkNumber().equals(ChunkNumber));
-
-            if (!ChunkExists) {
-                FileChunk.UploadedChunk Chunk = new FileChunk.UploadedChunk();
-                Chunk.setChunkNumber(ChunkNumber);
-                Chunk.setETag(eTag);
-                state.getUploadedChunk().add(Chunk);
-                fileChunkRepository.save(state);
-            }
-        }
+    public boolean isUploadComplete(String fileId) {
+        return fileChunkRepository.findById(fileId)
+                .map(FileChunk::isComplete)
+                .orElse(false);
     }
 
     public ResumeUploadResponse getUploadState(ResumeUploadRequest request) {
@@ -76,16 +71,19 @@ public class FileChunkService {
             response.setFileSize(state.getFileSize());
             response.setTotalChunks(state.getTotalChunks());
 
-            List<ResumeUploadResponse.UploadedChunkInfo> Chunks = state.getUploadedChunk().stream()
-                    .map(Chunk -> {
-                        ResumeUploadResponse.UploadedChunkInfo info = new ResumeUploadResponse.UploadedChunkInfo();
-                        info.setChunkNumber(Chunk.getChunkNumber());
-                        info.setETag(Chunk.getETag());
-                        return info;
-                    })
-                    .collect(Collectors.toList());
+            List<UploadedPart> parts = uploadedPartRepository.findByFileIdOrderByChunkNumber(fileId);
+            BitSet received = new BitSet(state.getTotalChunks() != null ? state.getTotalChunks() + 1 : 0);
+            List<ResumeUploadResponse.UploadedChunkInfo> chunks = new ArrayList<>(parts.size());
+            for (UploadedPart part : parts) {
+                ResumeUploadResponse.UploadedChunkInfo info = new ResumeUploadResponse.UploadedChunkInfo();
+                info.setChunkNumber(part.getChunkNumber());
+                info.setETag(part.getETag());
+                chunks.add(info);
+                received.set(part.getChunkNumber());
+            }
 
-            response.setCompletedChunks(Chunks);
+            response.setCompletedChunks(chunks);
+            response.setReceivedPartsBitmap(Base64.getEncoder().encodeToString(received.toByteArray()));
             return response;
         }
 
@@ -102,7 +100,7 @@ public class FileChunkService {
                     response.setFileName(state.getFileName());
                     response.setFileSize(state.getFileSize());
                     response.setTotalChunks(state.getTotalChunks());
-                    response.setCompletedChunks(state.getUploadedChunk().size());
+                    response.setCompletedChunks(state.getReceivedChunks());
                     response.setLastUpdatedAt(state.getLastUpdatedAt());
                     return response;
                 })
@@ -111,30 +109,34 @@ public class FileChunkService {
 
     @Transactional
     public void removeUploadState(String fileId) {
+        uploadedPartRepository.deleteByFileId(fileId);
         fileChunkRepository.deleteById(fileId);
     }
 
     public List<CompletedPart> getCompletedChunks(String fileId) {
-        Optional<FileChunk> stateOpt = fileChunkRepository.findById(fileId);
-        if (stateOpt.isPresent()) {
-            FileChunk state = stateOpt.get();
-
-            return state.getUploadedChunk().stream()
-                    .map(Chunk -> CompletedPart.builder()
-                            .partNumber(Chunk.getChunkNumber())
-                            .eTag(Chunk.getETag())
-                            .build())
-                    .collect(Collectors.toList());
-        }
-
-        return new ArrayList<>();
+        Integer totalChunks = fileChunkRepository.findById(fileId)
+                .map(FileChunk::getTotalChunks)
+                .orElse(null);
+
+        // Ordered by the primary key, which is the order CompleteMultipartUpload requires
+        return uploadedPartRepository.findByFileIdOrderByChunkNumber(fileId).stream()
+                .filter(part -> totalChunks == null || part.getChunkNumber() <= totalChunks)
+                .map(part -> CompletedPart.builder()
+                        .partNumber(part.getChunkNumber())
+                        .eTag(part.getETag())
+                        .build())
+                .collect(Collectors.toList());
     }
 
     @Transactional
     public void cleanupStaleUploads(String userId, int daysOld) {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
         List<FileChunk> staleUploads = fileChunkRepository.findByUserIdAndLastUpdatedAtBefore(userId, cutoffDate);
+        if (staleUploads.isEmpty()) {
+            return;
+        }
 
+        uploadedPartRepository.deleteByFileIdIn(staleUploads.stream().map(FileChunk::getFileId).toList());
         fileChunkRepository.deleteAll(staleUploads);
     }
 }
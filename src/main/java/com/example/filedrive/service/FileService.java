@@ -3,33 +3,68 @@ package com.example.filedrive.service;
 import com.example.filedrive.dto.*;
 import com.example.filedrive.mapper.EntityDTOMapper;
 import com.example.filedrive.model.*;
+import com.example.filedrive.repository.FileListCursor;
+import com.example.filedrive.repository.FileListSort;
+import com.example.filedrive.storage.StorageBackend;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 import software.amazon.awssdk.services.s3.model.CompletedPart;
 
+import java.io.InputStream;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Validated
 public class FileService {
-    private final S3Service s3Service;
+    // S3 allows part numbers from 1 to 10,000
+    private static final int MAX_PART_NUMBER = 10000;
+
+    private final StorageBackend storageBackend;
     private final DatabaseService databaseService;
     private final UserService userService;
     private final EntityDTOMapper entityDTOMapper;
     private final FileChunkService fileChunkService;
+    private final FileBlobService fileBlobService;
+    private final PartStatusWriter partStatusWriter;
+    private final PendingDeletionService pendingDeletionService;
+    private final int maxPresignBatchSize;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int maxBulkDeleteSize;
+    private final int maxBulkShareGrants;
 
     @Autowired
-    public FileService(S3Service s3Service, DatabaseService databaseService, UserService userService, EntityDTOMapper entityDTOMapper, FileChunkService fileChunkService) {
-        this.s3Service = s3Service;
+    public FileService(StorageBackend storageBackend, DatabaseService databaseService, UserService userService, EntityDTOMapper entityDTOMapper, FileChunkService fileChunkService,
+                       FileBlobService fileBlobService,
+                       PartStatusWriter partStatusWriter,
+                       PendingDeletionService pendingDeletionService,
+                       @Value("${application.multipart.max-presign-batch:1000}") int maxPresignBatchSize,
+                       @Value("${application.files.page.default-size:100}") int defaultPageSize,
+                       @Value("${application.files.page.max-size:500}") int maxPageSize,
+                       @Value("${application.files.bulk-delete.max-size:1000}") int maxBulkDeleteSize,
+                       @Value("${application.files.bulk-share.max-grants:10000}") int maxBulkShareGrants) {
+        this.storageBackend = storageBackend;
         this.databaseService = databaseService;
         this.userService = userService;
         this.entityDTOMapper = entityDTOMapper;
         this.fileChunkService = fileChunkService;
+        this.fileBlobService = fileBlobService;
+        this.partStatusWriter = partStatusWriter;
+        this.pendingDeletionService = pendingDeletionService;
+        this.maxPresignBatchSize = maxPresignBatchSize;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.maxBulkDeleteSize = maxBulkDeleteSize;
+        this.maxBulkShareGrants = maxBulkShareGrants;
     }
 
     public UploadFileResponse uploadFile(@Valid UploadFileRequest request) {
@@ -40,12 +75,22 @@ public class FileService {
                 throw new IllegalArgumentException("User not found with ID: " + userId);
             }
 
+            String contentHash = FileBlobService.normalizeContentHash(request.getContentHash());
+            if (contentHash != null) {
+                UploadFileResponse deduplicated = linkExistingBlob(request, user, contentHash);
+                if (deduplicated != null) {
+                    return deduplicated;
+                }
+            }
+
             String uniqueFileId = UUID.randomUUID().toString();
             String filePath = "user/" + userId + "/" + uniqueFileId;
 
             String url;
             try {
-                url = s3Service.generatePresignedUploadUrl(filePath, Duration.ofSeconds(900));
+                // With a content hash the signed checksum makes S3 verify the bytes, so the blob can be trusted later
+                String checksum = contentHash != null ? FileBlobService.toChecksumHeader(contentHash) : null;
+                url = storageBackend.presignUpload(filePath, Duration.ofSeconds(900), checksum);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to generate presigned URL: " + e.getMessage(), e);
             }
@@ -59,6 +104,7 @@ public class FileService {
             fileMetadata.setFileId(uniqueFileId);
             fileMetadata.setLastModifiedData(request.getFileLastModifiedDate());
             fileMetadata.setStatus(FileStatus.URL_GENERATED.toString());
+            fileMetadata.setContentHash(contentHash);
 
             boolean saved;
             try {
@@ -81,6 +127,89 @@ public class FileService {
         }
     }
 
+    public UploadFileResponse uploadFileStream(String userId, String fileName, String fileType, long fileSize, InputStream content) {
+        User user = userService.getUserById(userId);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found with ID: " + userId);
+        }
+
+        String uniqueFileId = UUID.randomUUID().toString();
+        String filePath = "user/" + userId + "/" + uniqueFileId;
+
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setUser(user);
+        fileMetadata.setFileName(fileName);
+        fileMetadata.setFileSize(fileSize);
+        fileMetadata.setFileType(fileType);
+        fileMetadata.setFilePath(filePath);
+        fileMetadata.setFileId(uniqueFileId);
+        fileMetadata.setLastModifiedData(new Date());
+        fileMetadata.setStatus(FileStatus.STREAMING.toString());
+
+        if (!databaseService.createFileMetadata(fileMetadata)) {
+            throw new RuntimeException("Failed to save file metadata");
+        }
+
+        try {
+            storageBackend.putObject(filePath, content, fileSize, fileType);
+        } catch (RuntimeException e) {
+            fileMetadata.setStatus(FileStatus.FAILED.toString());
+            databaseService.updateFileMetadata(fileMetadata);
+            throw e;
+        }
+
+        // The object is complete once the transfer returns, so there is no need to wait for the S3 notification
+        fileMetadata.setStatus(FileStatus.UPLOADED.toString());
+        fileMetadata.setS3Url(s3UrlFor(filePath));
+        databaseService.updateFileMetadata(fileMetadata);
+
+        UploadFileResponse response = new UploadFileResponse();
+        response.setFileId(uniqueFileId);
+        return response;
+    }
+
+    private UploadFileResponse linkExistingBlob(UploadFileRequest request, User user, String contentHash) {
+        FileBlob blob = fileBlobService.acquire(user.getId(), contentHash);
+        if (blob == null) {
+            return null;
+        }
+
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setUser(user);
+        fileMetadata.setFileName(request.getFileName());
+        fileMetadata.setFileSize(blob.getFileSize());
+        fileMetadata.setFileType(request.getFileType());
+        fileMetadata.setFilePath(blob.getFilePath());
+        fileMetadata.setFileId(UUID.randomUUID().toString());
+        fileMetadata.setLastModifiedData(request.getFileLastModifiedDate());
+        fileMetadata.setStatus(FileStatus.UPLOADED.toString());
+        fileMetadata.setS3Url(s3UrlFor(blob.getFilePath()));
+        fileMetadata.setContentHash(contentHash);
+
+        boolean saved;
+        try {
+            saved = databaseService.createFileMetadata(fileMetadata);
+        } catch (Exception e) {
+            saved = false;
+        }
+
+        if (!saved) {
+            if (fileBlobService.release(fileMetadata)) {
+                pendingDeletionService.enqueue(blob.getFilePath());
+            }
+            throw new RuntimeException("Failed to save file metadata");
+        }
+
+        UploadFileResponse response = new UploadFileResponse();
+        response.setFileId(fileMetadata.getFileId());
+        response.setDeduplicated(true);
+        return response;
+    }
+
+    private String s3UrlFor(String filePath) {
+        return storageBackend.objectUrl(filePath);
+    }
+
     public boolean updateFileUploadStatus(String url) {
         try {
             if (url == null || url.isEmpty()) {
@@ -106,40 +235,84 @@ public class FileService {
                 throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
             }
 
-            fileMetadata.setStatus(FileStatus.UPLOADED.toString());
-            fileMetadata.setS3Url(url);
+            // Multipart and streamed uploads finish through their own status transitions
+            if (!FileStatus.URL_GENERATED.toString().equals(fileMetadata.getStatus())) {
+                return FileStatus.UPLOADED.toString().equals(fileMetadata.getStatus());
+            }
 
+            return markUploaded(fileMetadata, url);
+        } catch (Exception e) {
+            System.err.println("Error updating file upload status: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Applies a batch of S3 ObjectCreated events; returns the number of files that changed status
+    public int markFilesUploaded(List<String> uniqueFileIds) {
+        if (uniqueFileIds == null || uniqueFileIds.isEmpty()) {
+            return 0;
+        }
+
+        int updated;
+        try {
+            updated = databaseService.markUploaded(uniqueFileIds, s3UrlFor(""));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to update file metadata: " + e.getMessage(), e);
+        }
+
+        for (FileMetadata fileMetadata : databaseService.getUnfinishedDeduplicatedFiles(uniqueFileIds)) {
             try {
-                return databaseService.updateFileMetadata(fileMetadata);
+                if (markUploaded(fileMetadata, s3UrlFor(fileMetadata.getFilePath()))) {
+                    updated++;
+                }
             } catch (Exception e) {
-                throw new RuntimeException("Failed to update file metadata: " + e.getMessage(), e);
+                System.err.println("Error updating file upload status for " + fileMetadata.getFileId() + ": " + e.getMessage());
+            }
+        }
+        return updated;
+    }
+
+    private boolean markUploaded(FileMetadata fileMetadata, String url) {
+        boolean alreadyUploaded = FileStatus.UPLOADED.toString().equals(fileMetadata.getStatus());
+        fileMetadata.setStatus(FileStatus.UPLOADED.toString());
+        fileMetadata.setS3Url(url);
+
+        String duplicatePath = null;
+        if (!alreadyUploaded && fileMetadata.getContentHash() != null) {
+            duplicatePath = fileBlobService.register(fileMetadata);
+            if (duplicatePath != null) {
+                fileMetadata.setS3Url(s3UrlFor(fileMetadata.getFilePath()));
+            }
+        }
+
+        try {
+            boolean updated = databaseService.updateFileMetadata(fileMetadata);
+            if (duplicatePath != null) {
+                // Same bytes are already stored under the blob's path
+                pendingDeletionService.enqueue(duplicatePath);
             }
+            return updated;
         } catch (Exception e) {
-            System.err.println("Error updating file upload status: " + e.getMessage());
-            return false;
+            throw new RuntimeException("Failed to update file metadata: " + e.getMessage(), e);
         }
     }
 
     public DownloadFileResponse downloadFile(String uniqueFileId) {
         try {
-            FileMetadata fileMetadata;
+            String filePath;
             try {
-                fileMetadata = databaseService.getFileMetadata(uniqueFileId);
-                if (fileMetadata == null) {
-                    throw new IllegalArgumentException("File not found with ID: " + uniqueFileId);
-                }
+                filePath = databaseService.getFilePath(uniqueFileId);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
             }
 
-            String filePath = fileMetadata.getFilePath();
             if (filePath == null || filePath.isEmpty()) {
-                throw new IllegalArgumentException("File path is missing for ID: " + uniqueFileId);
+                throw new IllegalArgumentException("File not found with ID: " + uniqueFileId);
             }
 
             String url;
             try {
-                url = s3Service.generatePresignedDownloadUrl(filePath, Duration.ofMinutes(10));
+                url = storageBackend.presignDownload(filePath, Duration.ofMinutes(10));
             } catch (Exception e) {
                 throw new RuntimeException("Failed to generate download URL: " + e.getMessage(), e);
             }
@@ -156,60 +329,180 @@ public class FileService {
 
     public List<FileMetadataResponse> getAllFiles(String userId) {
         try {
-            List<FileMetadata> fileEntities;
+            List<FileMetadataResponse> files;
             try {
-                fileEntities = databaseService.getAllFiles(userId);
-                if (fileEntities == null) {
+                files = databaseService.getAllFiles(userId);
+                if (files == null) {
                     return Collections.emptyList();
                 }
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve files: " + e.getMessage(), e);
             }
 
-            return entityDTOMapper.toFileMetadataDTOList(fileEntities);
+            return files;
         } catch (Exception e) {
             System.err.println("Error getting all files: " + e.getMessage());
             return Collections.emptyList();
         }
     }
 
+    public FileListPage getFilesPage(String userId, String cursor, Integer size, String sortParam, String direction) {
+        FileListSort sort = FileListSort.fromParam(sortParam);
+        boolean ascending = "asc".equalsIgnoreCase(direction);
+        if (direction != null && !ascending && !"desc".equalsIgnoreCase(direction)) {
+            throw new IllegalArgumentException("direction must be asc or desc");
+        }
+
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        FileListCursor after = cursor == null || cursor.isBlank() ? null : FileListCursor.decode(cursor, sort);
+
+        // Fetch one extra row to learn whether another page exists
+        List<FileMetadataResponse> rows = databaseService.getFilesPage(userId, sort, ascending, after, pageSize + 1);
+
+        FileListPage page = new FileListPage();
+        if (rows.size() > pageSize) {
+            List<FileMetadataResponse> files = new ArrayList<>(rows.subList(0, pageSize));
+            page.setFiles(files);
+            page.setNextCursor(FileListCursor.after(sort, files.get(pageSize - 1)).encode());
+        } else {
+            page.setFiles(rows);
+        }
+        return page;
+    }
+
     public FileMetadataResponse getFile(String uniqueFileId) {
         try {
-            FileMetadata fileEntity;
+            FileMetadataSnapshot fileSnapshot;
             try {
-                fileEntity = databaseService.getFileMetadata(uniqueFileId);
-                if (fileEntity == null) {
+                fileSnapshot = databaseService.getFileMetadataSnapshot(uniqueFileId);
+                if (fileSnapshot == null) {
                     return null;
                 }
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve file: " + e.getMessage(), e);
             }
 
-            return entityDTOMapper.toFileMetadataDTO(fileEntity);
+            return entityDTOMapper.toFileMetadataDTO(fileSnapshot);
         } catch (Exception e) {
             System.err.println("Error getting file: " + e.getMessage());
             return null;
         }
     }
 
+    public BulkDeleteResponse deleteFiles(BulkDeleteRequest request) {
+        if (request.getUserId() == null || request.getUserId().isBlank()) {
+            throw new IllegalArgumentException("User ID cannot be empty");
+        }
+        if (request.getFileIds() == null || request.getFileIds().isEmpty()) {
+            throw new IllegalArgumentException("File IDs cannot be empty");
+        }
+
+        List<String> fileIds = request.getFileIds().stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (fileIds.size() > maxBulkDeleteSize) {
+            throw new IllegalArgumentException("At most " + maxBulkDeleteSize + " files can be deleted at once");
+        }
+
+        Map<String, BulkDeleteResponse.Status> statuses;
+        try {
+            statuses = databaseService.deleteFiles(request.getUserId(), fileIds);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to delete files: " + e.getMessage(), e);
+        }
+
+        BulkDeleteResponse response = new BulkDeleteResponse();
+        response.setResults(statuses.entrySet().stream()
+                .map(entry -> new BulkDeleteResponse.ItemResult(entry.getKey(), entry.getValue()))
+                .toList());
+        response.setDeleted((int) statuses.values().stream()
+                .filter(status -> status == BulkDeleteResponse.Status.DELETED)
+                .count());
+        return response;
+    }
+
     public boolean deleteFile(String uniqueFileId) {
         try {
-            try {
-                return databaseService.deleteFile(uniqueFileId);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to delete file: " + e.getMessage(), e);
-            }
+            return databaseService.deleteFile(uniqueFileId);
         } catch (Exception e) {
             System.err.println("Error deleting file: " + e.getMessage());
             return false;
         }
     }
 
-    public List<FileMetadataResponse> getFileShares(String userId) {
+    public BulkShareResponse shareFiles(BulkShareRequest request) {
+        if (request.getUserId() == null || request.getUserId().isBlank()) {
+            throw new IllegalArgumentException("User ID cannot be empty");
+        }
+        if (request.getFileIds() == null || request.getFileIds().isEmpty()) {
+            throw new IllegalArgumentException("File IDs cannot be empty");
+        }
+        if (request.getRecipients() == null || request.getRecipients().isEmpty()) {
+            throw new IllegalArgumentException("Recipients cannot be empty");
+        }
+
+        List<String> fileIds = request.getFileIds().stream().filter(Objects::nonNull).distinct().toList();
+        List<String> recipients = request.getRecipients().stream().filter(Objects::nonNull).distinct().toList();
+        if ((long) fileIds.size() * recipients.size() > maxBulkShareGrants) {
+            throw new IllegalArgumentException("At most " + maxBulkShareGrants + " file/recipient pairs can be shared at once");
+        }
+
+        List<FileMetadata> files;
         try {
-            List<FileShare> fileShareList;
+            files = databaseService.getFilesWithOwner(fileIds);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
+        }
+
+        Set<String> found = new HashSet<>();
+        List<String> forbidden = new ArrayList<>();
+        List<FileShare> fileShareList = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (FileMetadata fileMetadata : files) {
+            found.add(fileMetadata.getFileId());
+            if (!request.getUserId().equals(fileMetadata.getUser().getId())) {
+                forbidden.add(fileMetadata.getFileId());
+                continue;
+            }
+
+            for (String recipient : recipients) {
+                if (recipient.equals(request.getUserId())) {
+                    continue;
+                }
+                FileShare fileShare = new FileShare();
+                fileShare.setUserId(recipient);
+                fileShare.setFileMetadata(fileMetadata);
+                fileShare.setPermission(SharePermission.READ);
+                fileShare.setCreatedAt(now);
+                fileShareList.add(fileShare);
+            }
+        }
+
+        int created;
+        try {
+            created = fileShareList.isEmpty() ? 0 : databaseService.insertNewShares(fileShareList);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to share files: " + e.getMessage(), e);
+        }
+
+        BulkShareResponse response = new BulkShareResponse();
+        response.setCreated(created);
+        response.setSkipped(fileShareList.size() - created);
+        response.setNotFound(fileIds.stream().filter(fileId -> !found.contains(fileId)).toList());
+        response.setForbidden(forbidden);
+        return response;
+    }
+
+    public List<FileMetadataResponse> getFileShares(String userId, Integer page, Integer size) {
+        try {
+            Pageable pageable = size == null
+                    ? Pageable.unpaged()
+                    : PageRequest.of(page == null ? 0 : Math.max(0, page), Math.max(1, Math.min(size, maxPageSize)));
+
+            List<FileMetadataResponse> fileShareList;
             try {
-                fileShareList = databaseService.getAllFileShares(userId);
+                fileShareList = databaseService.getAllFileShares(userId, pageable);
                 if (fileShareList == null) {
                     return Collections.emptyList();
                 }
@@ -217,7 +510,7 @@ public class FileService {
                 throw new RuntimeException("Failed to retrieve file shares: " + e.getMessage(), e);
             }
 
-            return entityDTOMapper.toFileShareDTOList(fileShareList);
+            return fileShareList;
         } catch (Exception e) {
             System.err.println("Error getting file shares: " + e.getMessage());
             return Collections.emptyList();
@@ -230,10 +523,11 @@ public class FileService {
             List<String> recipients = request.getRecipients();
             FileMetadata fileMetadata;
             try {
-                fileMetadata = databaseService.getFileMetadata(uniqueFileId);
-                if (fileMetadata == null) {
+                if (databaseService.getFileMetadataSnapshot(uniqueFileId) == null) {
                     throw new IllegalArgumentException("File not found with ID: " + uniqueFileId);
                 }
+                // The shares only need the foreign key, not a loaded entity
+                fileMetadata = databaseService.getFileReference(uniqueFileId);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
             }
@@ -267,7 +561,19 @@ public class FileService {
         }
     }
 
-    private static Map<String, String> extractIdsFromUrl(String s3Url) {
+    // Object keys look like user/{userId}/{uniqueFileId}[_suffix]
+    static String fileIdFromObjectKey(String objectKey) {
+        String[] keyParts = objectKey.split("/");
+        if (keyParts.length < 3 || !"user".equals(keyParts[0]) || keyParts[2].isEmpty()) {
+            return null;
+        }
+
+        String uniqueFileId = keyParts[2];
+        int separator = uniqueFileId.indexOf('_');
+        return separator >= 0 ? uniqueFileId.substring(0, separator) : uniqueFileId;
+    }
+
+    static Map<String, String> extractIdsFromUrl(String s3Url) {
         Map<String, String> result = new HashMap<>();
 
         try {
@@ -294,108 +600,87 @@ public class FileService {
     }
 
     /**Multipart Methods */
-    public UploadFileResponse initiateMultipartUpload(@Valid UploadFileRequest request) {
-        try {
-            String userId = request.getUserId();
-            User user = userService.getUserById(userId);
-            String uniqueFileId = UUID.randomUUID().toString();
-            String filePath = "user/" + userId + "/" + uniqueFileId;
+    public CompletableFuture<UploadFileResponse> initiateMultipartUpload(@Valid UploadFileRequest request) {
+        String userId = request.getUserId();
+        User user = userService.getUserById(userId);
 
-            String uploadId;
-            try {
-                uploadId = s3Service.initiateMultipartUpload(filePath);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to initiate multipart upload: " + e.getMessage(), e);
+        // Multipart checksums cannot prove the whole-file SHA-256, so these uploads only reuse blobs, never register them
+        String contentHash = FileBlobService.normalizeContentHash(request.getContentHash());
+        if (contentHash != null && user != null) {
+            UploadFileResponse deduplicated = linkExistingBlob(request, user, contentHash);
+            if (deduplicated != null) {
+                return CompletableFuture.completedFuture(deduplicated);
             }
+        }
 
-            FileMetadata fileMetadata = new FileMetadata();
-            fileMetadata.setUser(user);
-            fileMetadata.setFileName(request.getFileName());
-            fileMetadata.setFileSize(request.getFileSize());
-            fileMetadata.setFileType(request.getFileType());
-            fileMetadata.setFilePath(filePath);
-            fileMetadata.setFileId(uniqueFileId);
-            fileMetadata.setLastModifiedData(request.getFileLastModifiedDate());
-            fileMetadata.setStatus(FileStatus.MULTIPART_INITIATED.toString());
-            fileMetadata.setUploadId(uploadId);
-            fileMetadata.setTotalChunks(request.getTotalChunks());
+        String uniqueFileId = UUID.randomUUID().toString();
+        String filePath = "user/" + userId + "/" + uniqueFileId;
 
-            boolean saved;
-            try {
-                saved = databaseService.createFileMetadata(fileMetadata);
-            } catch (Exception e) {
-                s3Service.abortMultipartUpload(filePath, uploadId);
-                throw new RuntimeException("Failed to save file metadata: " + e.getMessage(), e);
-            }
+        return storageBackend.createMultipartUpload(filePath)
+                .thenApply(uploadId -> saveMultipartUploadState(request, user, uniqueFileId, filePath, uploadId));
+    }
 
-            if (saved) {
-                // Save the upload state for resume capability
-                try {
-
-                    fileChunkService.saveUploadState(
-                            uniqueFileId,
-                            uploadId,
-                            userId,
-                            request.getFileName(),
-                            request.getFileType(),
-                            request.getFileSize(),
-                            request.getTotalChunks()
-                    );
-                } catch (Exception e) {
-                    System.err.println("Failed to save upload state for resuming: " + e.getMessage());
-                }
+    private UploadFileResponse saveMultipartUploadState(UploadFileRequest request, User user, String uniqueFileId,
+                                                        String filePath, String uploadId) {
+        FileMetadata fileMetadata = new FileMetadata();
+        fileMetadata.setUser(user);
+        fileMetadata.setFileName(request.getFileName());
+        fileMetadata.setFileSize(request.getFileSize());
+        fileMetadata.setFileType(request.getFileType());
+        fileMetadata.setFilePath(filePath);
+        fileMetadata.setFileId(uniqueFileId);
+        fileMetadata.setLastModifiedData(request.getFileLastModifiedDate());
+        fileMetadata.setStatus(FileStatus.MULTIPART_INITIATED.toString());
+        fileMetadata.setUploadId(uploadId);
+        fileMetadata.setTotalChunks(request.getTotalChunks());
+
+        boolean saved;
+        try {
+            saved = databaseService.createFileMetadata(fileMetadata);
+        } catch (Exception e) {
+            storageBackend.abortMultipartUpload(filePath, uploadId);
+            throw new RuntimeException("Failed to save file metadata: " + e.getMessage(), e);
+        }
 
-                UploadFileResponse response = new UploadFileResponse();
-                response.setPreSignedUrl(null);
-                response.setUploadId(uploadId);
-                response.setFileId(uniqueFileId);
-                return response;
-            } else {
-                // Abort the multipart upload if metadata saving fails
-                s3Service.abortMultipartUpload(filePath, uploadId);
-                throw new RuntimeException("Failed to save file metadata");
-            }
-        } catch (RuntimeException e) {
-            throw e;
+        if (!saved) {
+            // Abort the multipart upload if metadata saving fails
+            storageBackend.abortMultipartUpload(filePath, uploadId);
+            throw new RuntimeException("Failed to save file metadata");
+        }
+
+        // Save the upload state for resume capability
+        try {
+            fileChunkService.saveUploadState(
+                    uniqueFileId,
+                    uploadId,
+                    request.getUserId(),
+                    request.getFileName(),
+                    request.getFileType(),
+                    request.getFileSize(),
+                    request.getTotalChunks()
+            );
         } catch (Exception e) {
-            throw new RuntimeException("Unexpected error during multipart upload initiation: " + e.getMessage(), e);
+            System.err.println("Failed to save upload state for resuming: " + e.getMessage());
         }
+
+        UploadFileResponse response = new UploadFileResponse();
+        response.setPreSignedUrl(null);
+        response.setUploadId(uploadId);
+        response.setFileId(uniqueFileId);
+        return response;
     }
 
     public MultipartUploadResponse getMultipartUploadUrl(MultipartUploadRequest request) {
         try {
             String fileId = request.getFileId();
             int chunkNumber = request.getChunkNumber();
-            FileMetadata fileMetadata;
-            try {
-                fileMetadata = databaseService.getFileMetadata(fileId);
-                if (fileMetadata == null) {
-                    throw new IllegalArgumentException("File metadata not found for ID: " + fileId);
-                }
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
-            }
-
-            // Verify file status
-            if (!FileStatus.MULTIPART_INITIATED.toString().equals(fileMetadata.getStatus()) &&
-                    !FileStatus.MULTIPART_IN_PROGRESS.toString().equals(fileMetadata.getStatus())) {
-                throw new IllegalArgumentException("File is not in a valid state for multipart upload");
-            }
-
-            // Update status to in progress if needed
-            if (FileStatus.MULTIPART_INITIATED.toString().equals(fileMetadata.getStatus())) {
-                fileMetadata.setStatus(FileStatus.MULTIPART_IN_PROGRESS.toString());
-                databaseService.updateFileMetadata(fileMetadata);
-            }
+            FileMetadataSnapshot fileMetadata = getMetadataForPartUpload(fileId);
 
             String uploadUrlForPart;
             try {
-                String uploadId = fileMetadata.getUploadId();
-                if (uploadId == null || uploadId.isEmpty()) {
-                    throw new IllegalArgumentException("Upload ID not found for file");
-                }
-                uploadUrlForPart = s3Service.generatePresignedUploadUrlForChunk(
-                        fileMetadata.getFilePath(),
+                String uploadId = fileMetadata.uploadId();
+                uploadUrlForPart = storageBackend.presignUploadPart(
+                        fileMetadata.filePath(),
                         uploadId,
                         chunkNumber,
                         Duration.ofMinutes(30));
@@ -406,7 +691,7 @@ public class FileService {
             MultipartUploadResponse response = new MultipartUploadResponse();
             response.setUploadUrl(uploadUrlForPart);
             response.setChunkNumber(chunkNumber);
-            response.setUploadId(fileMetadata.getUploadId());
+            response.setUploadId(fileMetadata.uploadId());
             return response;
         } catch (Exception e) {
             System.err.println("Error generating upload URL for part: " + e.getMessage());
@@ -414,7 +699,111 @@ public class FileService {
         }
     }
 
-    public boolean completeMultipartUpload(MultipartUploadCompleteRequest request) {
+    public MultipartBatchUploadResponse getMultipartUploadUrls(MultipartBatchUploadRequest request) {
+        try {
+            String fileId = request.getFileId();
+            List<Integer> chunkNumbers = resolveChunkNumbers(request);
+            FileMetadataSnapshot fileMetadata = getMetadataForPartUpload(fileId);
+
+            List<String> uploadUrls;
+            try {
+                uploadUrls = storageBackend.presignUploadParts(
+                        fileMetadata.filePath(),
+                        fileMetadata.uploadId(),
+                        chunkNumbers,
+                        Duration.ofMinutes(30));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to generate upload URLs for parts: " + e.getMessage(), e);
+            }
+
+            List<MultipartUploadResponse> parts = new ArrayList<>(chunkNumbers.size());
+            for (int i = 0; i < chunkNumbers.size(); i++) {
+                MultipartUploadResponse part = new MultipartUploadResponse();
+                part.setUploadUrl(uploadUrls.get(i));
+                part.setChunkNumber(chunkNumbers.get(i));
+                part.setUploadId(fileMetadata.uploadId());
+                parts.add(part);
+            }
+
+            MultipartBatchUploadResponse response = new MultipartBatchUploadResponse();
+            response.setFileId(fileId);
+            response.setUploadId(fileMetadata.uploadId());
+            response.setParts(parts);
+            return response;
+        } catch (Exception e) {
+            System.err.println("Error generating upload URLs for parts: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    private FileMetadataSnapshot getMetadataForPartUpload(String fileId) {
+        FileMetadataSnapshot fileMetadata;
+        try {
+            fileMetadata = databaseService.getFileMetadataSnapshot(fileId);
+            if (fileMetadata == null) {
+                throw new IllegalArgumentException("File metadata not found for ID: " + fileId);
+            }
+            if (!isPartUploadStatus(fileMetadata)) {
+                // The snapshot may predate a transition made on another instance
+                fileMetadata = databaseService.refreshFileMetadataSnapshot(fileId);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
+        }
+
+        // Verify file status
+        if (fileMetadata == null || !isPartUploadStatus(fileMetadata)) {
+            throw new IllegalArgumentException("File is not in a valid state for multipart upload");
+        }
+
+        String uploadId = fileMetadata.uploadId();
+        if (uploadId == null || uploadId.isEmpty()) {
+            throw new IllegalArgumentException("Upload ID not found for file");
+        }
+
+        // Update status to in progress if needed; losing the race to another request is fine
+        if (fileMetadata.hasStatus(FileStatus.MULTIPART_INITIATED)) {
+            databaseService.transitionStatus(fileId, FileStatus.MULTIPART_INITIATED, FileStatus.MULTIPART_IN_PROGRESS);
+        }
+        return fileMetadata;
+    }
+
+    private static boolean isPartUploadStatus(FileMetadataSnapshot fileMetadata) {
+        return fileMetadata.hasStatus(FileStatus.MULTIPART_INITIATED)
+                || fileMetadata.hasStatus(FileStatus.MULTIPART_IN_PROGRESS);
+    }
+
+    private List<Integer> resolveChunkNumbers(MultipartBatchUploadRequest request) {
+        List<Integer> chunkNumbers;
+        if (request.getChunkNumbers() != null && !request.getChunkNumbers().isEmpty()) {
+            chunkNumbers = request.getChunkNumbers().stream().distinct().sorted().toList();
+        } else if (request.getStartChunk() != null && request.getEndChunk() != null) {
+            if (request.getStartChunk() > request.getEndChunk()) {
+                throw new IllegalArgumentException("startChunk must not be greater than endChunk");
+            }
+            if ((long) request.getEndChunk() - request.getStartChunk() + 1 > maxPresignBatchSize) {
+                throw new IllegalArgumentException("At most " + maxPresignBatchSize + " parts can be requested at once");
+            }
+            chunkNumbers = new ArrayList<>();
+            for (int chunk = request.getStartChunk(); chunk <= request.getEndChunk(); chunk++) {
+                chunkNumbers.add(chunk);
+            }
+        } else {
+            throw new IllegalArgumentException("Either chunkNumbers or startChunk and endChunk are required");
+        }
+
+        if (chunkNumbers.size() > maxPresignBatchSize) {
+            throw new IllegalArgumentException("At most " + maxPresignBatchSize + " parts can be requested at once");
+        }
+        for (Integer chunkNumber : chunkNumbers) {
+            if (chunkNumber == null || chunkNumber < 1 || chunkNumber > MAX_PART_NUMBER) {
+                throw new IllegalArgumentException("Chunk numbers must be between 1 and " + MAX_PART_NUMBER);
+            }
+        }
+        return chunkNumbers;
+    }
+
+    public CompletableFuture<Boolean> completeMultipartUpload(MultipartUploadCompleteRequest request) {
         try {
             String fileId = request.getFileId();
             String uploadId = request.getUploadId();
@@ -423,21 +812,29 @@ public class FileService {
                 throw new IllegalArgumentException("Parts list cannot be null or empty");
             }
 
-            FileMetadata fileMetadata;
+            FileMetadataSnapshot fileMetadata;
             try {
-                fileMetadata = databaseService.getFileMetadata(fileId);
+                fileMetadata = databaseService.getFileMetadataSnapshot(fileId);
                 if (fileMetadata == null) {
                     throw new IllegalArgumentException("File metadata not found for ID: " + fileId);
                 }
+                if (!fileMetadata.hasStatus(FileStatus.MULTIPART_IN_PROGRESS)) {
+                    fileMetadata = databaseService.refreshFileMetadataSnapshot(fileId);
+                }
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve file metadata: " + e.getMessage(), e);
             }
 
             // Verify file status
-            if (!FileStatus.MULTIPART_IN_PROGRESS.toString().equals(fileMetadata.getStatus())) {
+            if (fileMetadata == null || !fileMetadata.hasStatus(FileStatus.MULTIPART_IN_PROGRESS)) {
                 throw new IllegalArgumentException("File is not in a valid state for completing multipart upload");
             }
 
+            // Every part must be recorded, otherwise S3 would assemble a truncated object
+            if (!fileChunkService.isUploadComplete(fileId)) {
+                throw new IllegalArgumentException("Not all parts have been uploaded for file: " + fileId);
+            }
+
             // Get completed chunks from fileChunkService instead of converting from request
             List<CompletedPart> completedParts = fileChunkService.getCompletedChunks(fileId);
 
@@ -445,40 +842,65 @@ public class FileService {
                 throw new IllegalArgumentException("No completed chunks found for file");
             }
 
-            try {
-                s3Service.completeMultipartUpload(fileMetadata.getFilePath(), uploadId, completedParts);
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to complete multipart upload: " + e.getMessage(), e);
-            }
-
-            // Update file status
-            fileMetadata.setStatus(FileStatus.UPLOADED.toString());
-
-            // Generate the final S3 URL for the completed file
-            String s3Url = "https://" + s3Service.getBucketName() + ".s3.amazonaws.com/" + fileMetadata.getFilePath();
-            fileMetadata.setS3Url(s3Url);
-
-            try {
-                databaseService.updateFileMetadata(fileMetadata);
-                fileChunkService.removeUploadState(fileId);
-                return true;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to update file metadata: " + e.getMessage(), e);
-            }
+            String filePath = fileMetadata.filePath();
+            return storageBackend.completeMultipartUpload(filePath, uploadId, completedParts)
+                    .thenApply(ignored -> {
+                        // Generate the final URL for the completed file
+                        String s3Url = s3UrlFor(filePath);
+
+                        try {
+                            if (!databaseService.transitionStatus(fileId, FileStatus.MULTIPART_IN_PROGRESS, FileStatus.UPLOADED, s3Url)) {
+                                // Only a concurrent completion of the same upload counts as success
+                                FileMetadataSnapshot current = databaseService.refreshFileMetadataSnapshot(fileId);
+                                if (current == null || !current.hasStatus(FileStatus.UPLOADED)) {
+                                    System.err.println("File " + fileId + " was no longer in progress when its upload completed");
+                                    return false;
+                                }
+                            }
+                            fileChunkService.removeUploadState(fileId);
+                            return true;
+                        } catch (Exception e) {
+                            throw new RuntimeException("Failed to update file metadata: " + e.getMessage(), e);
+                        }
+                    })
+                    .exceptionally(e -> {
+                        System.err.println("Error completing multipart upload: " + e.getMessage());
+                        return false;
+                    });
         } catch (Exception e) {
             System.err.println("Error completing multipart upload: " + e.getMessage());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
-    public boolean updateChunkUploadStatus(String fileId, int chunkNumber, String eTag) {
-        try {
-            fileChunkService.updateUploadedChunk(fileId, chunkNumber, eTag);
-            return true;
-        } catch (Exception e) {
-            System.err.println("Error updating chunk upload status: " + e.getMessage());
-            return false;
+    public CompletableFuture<Boolean> updateChunkUploadStatus(String fileId, int chunkNumber, String eTag) {
+        MultipartUploadCompleteRequest.ChunkDetail part = new MultipartUploadCompleteRequest.ChunkDetail();
+        part.setChunkNumber(chunkNumber);
+        part.setETag(eTag);
+        // This endpoint has always acknowledged reports for unknown (finished or cancelled) uploads
+        return updateChunkUploadStatuses(fileId, List.of(part)).thenApply(recorded -> true);
+    }
+
+    public CompletableFuture<Boolean> updateChunkUploadStatuses(String fileId, List<MultipartUploadCompleteRequest.ChunkDetail> parts) {
+        if (fileId == null || fileId.isBlank()) {
+            throw new IllegalArgumentException("File ID cannot be empty");
+        }
+        if (parts == null || parts.isEmpty()) {
+            throw new IllegalArgumentException("Parts list cannot be null or empty");
+        }
+        if (parts.size() > MAX_PART_NUMBER) {
+            throw new IllegalArgumentException("At most " + MAX_PART_NUMBER + " parts can be reported at once");
+        }
+        for (MultipartUploadCompleteRequest.ChunkDetail part : parts) {
+            if (part == null || part.getChunkNumber() < 1 || part.getChunkNumber() > MAX_PART_NUMBER) {
+                throw new IllegalArgumentException("Chunk numbers must be between 1 and " + MAX_PART_NUMBER);
+            }
+            if (part.getETag() == null || part.getETag().isBlank()) {
+                throw new IllegalArgumentException("ETag is required for chunk " + part.getChunkNumber());
+            }
         }
+
+        return partStatusWriter.submit(fileId, parts);
     }
 
     public ResumeUploadResponse getUploadStateForResume(ResumeUploadRequest request) {
@@ -499,7 +921,7 @@ public class FileService {
         }
     }
 
-    public boolean cancelMultipartUpload(String fileId) {
+    public CompletableFuture<Boolean> cancelMultipartUpload(String fileId) {
         try {
             FileMetadata fileMetadata;
             try {
@@ -516,19 +938,24 @@ public class FileService {
                 throw new IllegalArgumentException("Upload ID not found for file");
             }
 
-            try {
-                s3Service.abortMultipartUpload(fileMetadata.getFilePath(), uploadId);
-            } catch (Exception e) {
-                System.err.println("Error aborting multipart upload in S3: " + e.getMessage());
-            }
-
-            fileChunkService.removeUploadState(fileId);
-
-            // Delete the file metadata
-            return databaseService.deleteFile(fileId);
+            return storageBackend.abortMultipartUpload(fileMetadata.getFilePath(), uploadId)
+                    .exceptionally(e -> {
+                        System.err.println("Error aborting multipart upload in S3: " + e.getMessage());
+                        return null;
+                    })
+                    .thenApply(ignored -> {
+                        fileChunkService.removeUploadState(fileId);
+
+                        // Delete the file metadata
+                        return databaseService.deleteFile(fileId);
+                    })
+                    .exceptionally(e -> {
+                        System.err.println("Error canceling multipart upload: " + e.getMessage());
+                        return false;
+                    });
         } catch (Exception e) {
             System.err.println("Error canceling multipart upload: " + e.getMessage());
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
     }
 
@@ -0,0 +1,276 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.cache.HotObjectCache;
+import com.example.filedrive.model.FileMetadataSnapshot;
+import com.example.filedrive.storage.ByteRange;
+import com.example.filedrive.storage.ObjectContent;
+import com.example.filedrive.storage.StorageBackend;
+import com.example.filedrive.storage.StorageException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Serves file content through the application with single-range support. Objects that have a
+ * local copy (a mirror of the bucket, or the local storage engine's own files) are sent from disk
+ * (Tomcat sendfile when available, FileChannel.transferTo otherwise). Other objects are served from
+ * the hot object cache when it holds a copy, and relayed from the storage backend through a
+ * fixed-size buffer otherwise.
+ */
+@Service
+public class FileStreamingService {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final DatabaseService databaseService;
+    private final StorageBackend storageBackend;
+    private final HotObjectCache hotObjectCache;
+    private final Path localMirrorDir;
+    private final int bufferSize;
+
+    @Autowired
+    public FileStreamingService(DatabaseService databaseService, StorageBackend storageBackend,
+                                HotObjectCache hotObjectCache,
+                                @Value("${application.download.local-mirror-dir:}") String localMirrorDir,
+                                @Value("${application.download.buffer-size:65536}") int bufferSize) {
+        this.databaseService = databaseService;
+        this.storageBackend = storageBackend;
+        this.hotObjectCache = hotObjectCache;
+        this.localMirrorDir = localMirrorDir.isBlank() ? null : Paths.get(localMirrorDir).toAbsolutePath().normalize();
+        this.bufferSize = bufferSize;
+    }
+
+    public void streamFile(String uniqueFileId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileMetadataSnapshot fileMetadata = databaseService.getFileMetadataSnapshot(uniqueFileId);
+        if (fileMetadata == null || fileMetadata.filePath() == null) {
+            throw new IllegalArgumentException("File not found with ID: " + uniqueFileId);
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (fileMetadata.fileName() != null) {
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename(fileMetadata.fileName(), StandardCharsets.UTF_8)
+                    .build()
+                    .toString());
+        }
+        response.setContentType(fileMetadata.fileType() != null ? fileMetadata.fileType() : "application/octet-stream");
+
+        Path localCopy = resolveLocalCopy(fileMetadata.filePath());
+        if (localCopy != null) {
+            streamLocal(localCopy, request, response);
+        } else if (!hotObjectCache.isEnabled() || !streamFromHotCache(fileMetadata, request, response)) {
+            streamFromStorage(fileMetadata.filePath(), request, response);
+        }
+    }
+
+    private Path resolveLocalCopy(String objectKey) {
+        if (localMirrorDir != null) {
+            Path candidate = localMirrorDir.resolve(objectKey).normalize();
+            if (candidate.startsWith(localMirrorDir) && Files.isRegularFile(candidate)) {
+                return candidate;
+            }
+        }
+        return storageBackend.localPath(objectKey);
+    }
+
+    private void streamLocal(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        Instant lastModified = Files.getLastModifiedTime(file).toInstant();
+        String eTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified.toEpochMilli()) + "\"";
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            sendRange(channel, file, length, eTag, lastModified, request, response);
+        }
+    }
+
+    private boolean streamFromHotCache(FileMetadataSnapshot fileMetadata, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String objectKey = fileMetadata.filePath();
+        HotObjectCache.Entry entry = hotObjectCache.get(objectKey, fileMetadata.fileSize(), target -> {
+            try (ObjectContent object = storageBackend.getObject(objectKey, null, null, null)) {
+                object.content().transferTo(target);
+                return new HotObjectCache.Fill(object.eTag(), object.lastModified());
+            }
+        });
+        if (entry == null) {
+            return false;
+        }
+
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(entry.file(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // Evicted since the lookup
+            return false;
+        }
+        // The storage validators are kept, so If-Range behaves the same whichever path serves the request
+        try (channel) {
+            hotObjectCache.recordBytesServed(sendRange(channel, null, entry.length(), entry.eTag(), entry.lastModified(), request, response));
+        }
+        return true;
+    }
+
+    /**
+     * Sends the requested range of an open file and returns the number of bytes sent. Sendfile is
+     * only used when file is given: Tomcat opens the file again after this returns, which a cache
+     * eviction could race with.
+     */
+    private long sendRange(FileChannel channel, Path file, long length, String eTag, Instant lastModified,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (eTag != null) {
+            response.setHeader(HttpHeaders.ETAG, eTag);
+        }
+        if (lastModified != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified.toEpochMilli());
+        }
+
+        ByteRange range = null;
+        if (ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), eTag, lastModified)) {
+            range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE));
+        }
+
+        long start = 0;
+        long end = length - 1;
+        if (range != null) {
+            if (!range.isSatisfiable(length)) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return 0;
+            }
+            start = range.start(length);
+            end = range.end(length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if (count <= 0) {
+            return 0;
+        }
+
+        // Let Tomcat hand the file to the kernel when the connector supports sendfile
+        if (file != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, file.toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, end + 1);
+            return count;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        long position = start;
+        long remaining = count;
+        while (remaining > 0) {
+            long sent = channel.transferTo(position, remaining, target);
+            if (sent <= 0) {
+                break;
+            }
+            position += sent;
+            remaining -= sent;
+        }
+        return count - remaining;
+    }
+
+    private void streamFromStorage(String objectKey, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ByteRange range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE));
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        String ifMatch = null;
+        Instant ifUnmodifiedSince = null;
+        if (range != null && ifRange != null) {
+            if (ifRange.startsWith("\"")) {
+                ifMatch = ifRange;
+            } else if (ifRange.startsWith("W/")) {
+                // Weak validators never satisfy If-Range
+                range = null;
+            } else {
+                ifUnmodifiedSince = parseHttpDate(ifRange);
+                if (ifUnmodifiedSince == null) {
+                    range = null;
+                }
+            }
+        }
+
+        ObjectContent object;
+        try {
+            object = storageBackend.getObject(objectKey, range, ifMatch, ifUnmodifiedSince);
+        } catch (StorageException e) {
+            if (e.getStatusCode() == HttpServletResponse.SC_PRECONDITION_FAILED) {
+                // Representation changed since the client's copy: send the whole object instead of the range
+                object = storageBackend.getObject(objectKey, null, null, null);
+            } else if (e.getStatusCode() == HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            } else {
+                throw e;
+            }
+        }
+
+        try (InputStream in = object.content()) {
+            if (object.contentRange() != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, object.contentRange());
+            }
+            if (object.contentLength() != null) {
+                response.setContentLengthLong(object.contentLength());
+            }
+            if (object.eTag() != null) {
+                response.setHeader(HttpHeaders.ETAG, object.eTag());
+            }
+            if (object.lastModified() != null) {
+                response.setDateHeader(HttpHeaders.LAST_MODIFIED, object.lastModified().toEpochMilli());
+            }
+
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[bufferSize];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static boolean ifRangeMatches(String ifRange, String eTag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+
+        Instant date = parseHttpDate(ifRange);
+        // HTTP dates have second precision
+        return date != null && lastModified != null && lastModified.getEpochSecond() <= date.getEpochSecond();
+    }
+
+    private static Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
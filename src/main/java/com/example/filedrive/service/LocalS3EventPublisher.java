@@ -0,0 +1,93 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.dto.S3EventNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Stand-in for the S3 notification pipeline when running without AWS: synthesises ObjectCreated
+ * records for keys, or replays captured notification documents, straight into the ingestion queue.
+ * Always present with the local storage engine, which has no bucket notifications of its own.
+ */
+@Component
+@ConditionalOnExpression("${application.s3.events.local-publisher.enabled:false} or '${application.storage.backend:s3}' == 'local'")
+public class LocalS3EventPublisher {
+
+    private final S3EventIngestionService ingestionService;
+    private final ObjectMapper objectMapper;
+    private final String bucketName;
+    private final AtomicLong sequencer = new AtomicLong();
+
+    @Autowired
+    public LocalS3EventPublisher(S3EventIngestionService ingestionService, ObjectMapper objectMapper,
+                                 @Value("${application.bucket.name}") String bucketName) {
+        this.ingestionService = ingestionService;
+        this.objectMapper = objectMapper;
+        this.bucketName = bucketName;
+    }
+
+    public S3EventIngestionService.IngestResult publishObjectCreated(List<String> objectKeys) {
+        S3EventNotification notification = new S3EventNotification();
+        List<S3EventNotification.EventRecord> records = new ArrayList<>(objectKeys.size());
+        for (String key : objectKeys) {
+            records.add(objectCreated(key));
+        }
+        notification.setRecords(records);
+        return ingestionService.submit(notification);
+    }
+
+    /**
+     * Replays a captured notification document, or every *.json document in a directory in name order.
+     */
+    public S3EventIngestionService.IngestResult replay(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return ingestionService.submit(objectMapper.readValue(path.toFile(), S3EventNotification.class));
+        }
+
+        int accepted = 0;
+        int rejected = 0;
+        try (Stream<Path> files = Files.list(path)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".json")).sorted().toList()) {
+                S3EventIngestionService.IngestResult result =
+                        ingestionService.submit(objectMapper.readValue(file.toFile(), S3EventNotification.class));
+                accepted += result.accepted();
+                rejected += result.rejected();
+            }
+        }
+        return new S3EventIngestionService.IngestResult(accepted, rejected);
+    }
+
+    private S3EventNotification.EventRecord objectCreated(String key) {
+        S3EventNotification.Bucket bucket = new S3EventNotification.Bucket();
+        bucket.setName(bucketName);
+
+        S3EventNotification.S3Object object = new S3EventNotification.S3Object();
+        object.setKey(URLEncoder.encode(key, StandardCharsets.UTF_8));
+        object.setSequencer(Long.toHexString(sequencer.incrementAndGet()));
+
+        S3EventNotification.S3Entity s3 = new S3EventNotification.S3Entity();
+        s3.setBucket(bucket);
+        s3.setObject(object);
+
+        S3EventNotification.EventRecord record = new S3EventNotification.EventRecord();
+        record.setEventSource("aws:s3");
+        record.setEventName("ObjectCreated:Put");
+        record.setEventTime(Instant.now().toString());
+        record.setS3(s3);
+        return record;
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.dto.MultipartUploadCompleteRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces part-status reports from concurrent requests into one transaction per flush.
+ * <p>
+ * A single writer thread waits at most {@code max-delay-ms} after the first queued report for others
+ * to arrive, then writes every part in one JDBC batch upsert and recounts the touched uploads.
+ * Each caller's future completes only after that transaction commits, so a successful response
+ * means the parts are durable. Reports are idempotent, so callers can simply retry a failed future.
+ * <p>
+ * Every instance of the application runs its own writer. A flush locks the touched file_chunk rows
+ * in file_id order before writing parts, so writers on different instances serialize per upload
+ * instead of deadlocking on the part rows; a flush that still loses a deadlock or times out on a
+ * lock is retried.
+ */
+@Service
+public class PartStatusWriter {
+
+    private static final String UPSERT_PART_SQL =
+            "INSERT INTO uploaded_part (file_id, chunk_number, e_tag, uploaded_at) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE e_tag = VALUES(e_tag), uploaded_at = VALUES(uploaded_at)";
+
+    private static final String LOCK_UPLOADS_SQL =
+            "SELECT file_id, total_chunks FROM file_chunk WHERE file_id IN (:fileIds) ORDER BY file_id FOR UPDATE";
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    // Batched inserts don't report per-row outcomes reliably (rewriteBatchedStatements), so recount instead.
+    // Only parts within the declared count make an upload complete.
+    private static final String RECOUNT_SQL =
+            "UPDATE file_chunk c SET received_chunks = " +
+            "(SELECT COUNT(*) FROM uploaded_part p WHERE p.file_id = c.file_id " +
+            "AND (c.total_chunks IS NULL OR p.chunk_number BETWEEN 1 AND c.total_chunks)), last_updated_at = :now " +
+            "WHERE c.file_id IN (:fileIds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingReport> queue;
+    private final long maxDelayNanos;
+    private final int maxBatchParts;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @Autowired
+    public PartStatusWriter(NamedParameterJdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${application.multipart.part-status.queue-capacity:10000}") int queueCapacity,
+                            @Value("${application.multipart.part-status.max-delay-ms:5}") long maxDelayMillis,
+                            @Value("${application.multipart.part-status.max-batch-parts:2000}") int maxBatchParts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.maxBatchParts = maxBatchParts;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::run, "part-status-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Completes with false if the upload is unknown (finished, cancelled or never started), and
+     * exceptionally with IllegalArgumentException if a part number exceeds the upload's declared
+     * part count; such a report is not written at all.
+     */
+    public CompletableFuture<Boolean> submit(String fileId, List<MultipartUploadCompleteRequest.ChunkDetail> parts) {
+        PendingReport report = new PendingReport(fileId, List.copyOf(parts), new CompletableFuture<>());
+        if (!running || !queue.offer(report)) {
+            report.result().completeExceptionally(new IllegalStateException("Part status writer is overloaded, retry later"));
+        }
+        return report.result();
+    }
+
+    private void run() {
+        List<PendingReport> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReport first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                int parts = first.parts().size();
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (parts < maxBatchParts) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingReport next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    parts += next.parts().size();
+                }
+
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("Error in part status writer: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+
+        PendingReport leftover;
+        while ((leftover = queue.poll()) != null) {
+            leftover.result().completeExceptionally(new IllegalStateException("Part status writer stopped"));
+        }
+    }
+
+    private void flush(List<PendingReport> batch) {
+        Map<PendingReport, Integer> outOfRange = new IdentityHashMap<>();
+        Set<String> accepted;
+        try {
+            accepted = writeWithRetry(batch, outOfRange);
+        } catch (Exception e) {
+            System.err.println("Error writing part status batch: " + e.getMessage());
+            RuntimeException failure = new RuntimeException("Failed to record part status: " + e.getMessage(), e);
+            batch.forEach(report -> report.result().completeExceptionally(failure));
+            return;
+        }
+
+        for (PendingReport report : batch) {
+            Integer totalChunks = outOfRange.get(report);
+            if (totalChunks != null) {
+                report.result().completeExceptionally(
+                        new IllegalArgumentException("Chunk numbers must be between 1 and " + totalChunks));
+            } else {
+                report.result().complete(accepted.contains(report.fileId()));
+            }
+        }
+    }
+
+    private Set<String> writeWithRetry(List<PendingReport> batch, Map<PendingReport, Integer> outOfRange) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> write(batch, outOfRange));
+            } catch (PessimisticLockingFailureException e) {
+                // Deadlock victim or lock wait timeout; the transaction was rolled back, so it can run again
+                if (attempt >= MAX_FLUSH_ATTEMPTS) {
+                    throw e;
+                }
+                outOfRange.clear();
+            }
+        }
+    }
+
+    private Set<String> write(List<PendingReport> batch, Map<PendingReport, Integer> outOfRange) {
+        Set<String> fileIds = batch.stream().map(PendingReport::fileId).collect(Collectors.toSet());
+        Map<String, Integer> totalChunks = new HashMap<>();
+        // Locks the upload rows before any part row, always in the same order
+        jdbcTemplate.query(LOCK_UPLOADS_SQL, Map.of("fileIds", fileIds),
+                row -> {
+                    int total = row.getInt("total_chunks");
+                    totalChunks.put(row.getString("file_id"), row.wasNull() ? null : total);
+                });
+        Set<String> existing = new HashSet<>(totalChunks.keySet());
+        if (existing.isEmpty()) {
+            return existing;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (PendingReport report : batch) {
+            if (!existing.contains(report.fileId())) {
+                continue;
+            }
+            // A part past the declared count would let the upload look complete while a real part is missing
+            Integer total = totalChunks.get(report.fileId());
+            if (total != null && report.parts().stream().anyMatch(part -> part.getChunkNumber() > total)) {
+                outOfRange.put(report, total);
+                continue;
+            }
+            for (MultipartUploadCompleteRequest.ChunkDetail part : report.parts()) {
+                rows.add(new Object[]{report.fileId(), part.getChunkNumber(), part.getETag(), now});
+            }
+        }
+        rows.sort(Comparator.comparing((Object[] row) -> (String) row[0]).thenComparing(row -> (Integer) row[1]));
+
+        jdbcTemplate.getJdbcTemplate().batchUpdate(UPSERT_PART_SQL, rows);
+        jdbcTemplate.update(RECOUNT_SQL, Map.of("fileIds", existing, "now", now));
+        return existing;
+    }
+
+    private record PendingReport(String fileId,
+                                 List<MultipartUploadCompleteRequest.ChunkDetail> parts,
+                                 CompletableFuture<Boolean> result) {
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.model.PendingDeletion;
+import com.example.filedrive.repository.PendingDeletionRepository;
+import com.example.filedrive.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable queue of S3 objects to delete.
+ * <p>
+ * Callers enqueue keys inside the transaction that removes the metadata, so a committed delete always
+ * leaves a row behind and the API never waits on S3. The drainer claims due rows with SKIP LOCKED,
+ * removes them with DeleteObjects (up to 1,000 keys per request) and reschedules failed keys with
+ * exponential backoff.
+ */
+@Service
+public class PendingDeletionService {
+
+    private static final int MAX_KEYS_PER_REQUEST = 1000;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO pending_deletion (object_key, attempts, not_before, created_at) VALUES (?, 0, ?, ?)";
+
+    private final PendingDeletionRepository pendingDeletionRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StorageBackend storageBackend;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+
+    @Autowired
+    public PendingDeletionService(PendingDeletionRepository pendingDeletionRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  StorageBackend storageBackend,
+                                  @Value("${application.deletion.batch-size:1000}") int batchSize,
+                                  @Value("${application.deletion.max-batches-per-run:20}") int maxBatchesPerRun,
+                                  @Value("${application.deletion.initial-backoff-seconds:30}") long initialBackoffSeconds,
+                                  @Value("${application.deletion.max-backoff-seconds:3600}") long maxBackoffSeconds) {
+        this.pendingDeletionRepository = pendingDeletionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.storageBackend = storageBackend;
+        this.batchSize = Math.min(batchSize, MAX_KEYS_PER_REQUEST);
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.maxBackoff = Duration.ofSeconds(maxBackoffSeconds);
+    }
+
+    @Transactional
+    public void enqueue(String objectKey) {
+        enqueueAll(List.of(objectKey));
+    }
+
+    // Joins the caller's transaction so the keys commit or roll back with the metadata change
+    @Transactional
+    public void enqueueAll(Collection<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(objectKeys.size());
+        for (String objectKey : objectKeys) {
+            rows.add(new Object[]{objectKey, now, now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        enqueued.addAndGet(rows.size());
+    }
+
+    @Scheduled(initialDelayString = "${application.deletion.initial-delay-ms:10000}",
+            fixedDelayString = "${application.deletion.drain-interval-ms:1000}")
+    public void drain() {
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer claimed = transactionTemplate.execute(status -> drainBatch());
+                if (claimed == null || claimed < batchSize) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Error draining pending deletions: " + e.getMessage());
+        }
+    }
+
+    private int drainBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingDeletion> due = pendingDeletionRepository.findDueForUpdate(now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        // The same key can be queued more than once (e.g. retried deletes); send it once
+        Map<String, List<PendingDeletion>> byKey = new LinkedHashMap<>();
+        for (PendingDeletion deletion : due) {
+            byKey.computeIfAbsent(deletion.getObjectKey(), key -> new ArrayList<>()).add(deletion);
+        }
+
+        Map<String, String> errors;
+        try {
+            requests.incrementAndGet();
+            errors = storageBackend.deleteObjects(new ArrayList<>(byKey.keySet()));
+        } catch (Exception e) {
+            errors = new LinkedHashMap<>();
+            for (String key : byKey.keySet()) {
+                errors.put(key, e.getMessage());
+            }
+        }
+
+        List<Long> done = new ArrayList<>();
+        for (Map.Entry<String, List<PendingDeletion>> entry : byKey.entrySet()) {
+            String error = errors.get(entry.getKey());
+            for (PendingDeletion deletion : entry.getValue()) {
+                if (error == null) {
+                    done.add(deletion.getId());
+                } else {
+                    // Managed entity; the change is flushed when the batch transaction commits
+                    deletion.setAttempts(deletion.getAttempts() + 1);
+                    deletion.setNotBefore(now.plus(backoff(deletion.getAttempts())));
+                    deletion.setLastError(truncate(error));
+                }
+            }
+            if (error == null) {
+                deleted.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+                System.err.println("Failed to delete " + entry.getKey() + " from S3: " + error);
+            }
+        }
+
+        if (!done.isEmpty()) {
+            pendingDeletionRepository.deleteAllByIdInBatch(done);
+        }
+        return due.size();
+    }
+
+    private Duration backoff(int attempts) {
+        Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return null;
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    public long getBacklog() {
+        return pendingDeletionRepository.count();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    public long getDeletedCount() {
+        return deleted.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+}
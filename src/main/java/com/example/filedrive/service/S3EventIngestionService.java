@@ -0,0 +1,186 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.dto.S3EventNotification;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accepts S3 ObjectCreated notifications and applies the resulting status changes in the background.
+ * <p>
+ * Records are reduced to file ids and pushed onto a bounded queue; an id that is already waiting is
+ * not queued twice, so bursts of repeated events for one key collapse into a single update. Workers
+ * drain the queue in batches and mark each batch uploaded with one bulk statement. The queue lives
+ * in memory, so events acknowledged just before a crash are lost. {@link StaleUploadReaper} later
+ * finds files still URL_GENERATED after reconcile-after-minutes, checks storage for their objects
+ * and marks the ones that exist uploaded.
+ */
+@Service
+public class S3EventIngestionService {
+
+    private static final String OBJECT_CREATED = "ObjectCreated:";
+
+    private final FileService fileService;
+    private final String bucketName;
+    private final int workerCount;
+    private final int batchSize;
+    private final BlockingQueue<String> queue;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    @Autowired
+    public S3EventIngestionService(FileService fileService,
+                                   @Value("${application.bucket.name}") String bucketName,
+                                   @Value("${application.s3.events.queue-capacity:100000}") int queueCapacity,
+                                   @Value("${application.s3.events.workers:2}") int workerCount,
+                                   @Value("${application.s3.events.batch-size:500}") int batchSize) {
+        this.fileService = fileService;
+        this.bucketName = bucketName;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        for (int i = 1; i <= workerCount; i++) {
+            Thread worker = new Thread(this::runWorker, "s3-event-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Queues the ObjectCreated records of a notification and returns how many could not be queued
+     * because the queue is full. The caller should have the sender retry when that is non-zero.
+     */
+    public IngestResult submit(S3EventNotification notification) {
+        if (notification == null || notification.getRecords() == null) {
+            return new IngestResult(0, 0);
+        }
+
+        int accepted = 0;
+        int dropped = 0;
+        for (S3EventNotification.EventRecord record : notification.getRecords()) {
+            String fileId = fileIdFor(record);
+            if (fileId == null) {
+                continue;
+            }
+
+            received.increment();
+            if (!queued.add(fileId)) {
+                deduplicated.increment();
+                accepted++;
+                continue;
+            }
+            if (queue.offer(fileId)) {
+                accepted++;
+            } else {
+                queued.remove(fileId);
+                rejected.increment();
+                dropped++;
+            }
+        }
+        return new IngestResult(accepted, dropped);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    public long getDeduplicatedCount() {
+        return deduplicated.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getProcessedCount() {
+        return processed.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    private String fileIdFor(S3EventNotification.EventRecord record) {
+        if (record == null || record.getEventName() == null || !record.getEventName().startsWith(OBJECT_CREATED)
+                || record.getS3() == null || record.getS3().getObject() == null) {
+            return null;
+        }
+        if (record.getS3().getBucket() != null && record.getS3().getBucket().getName() != null
+                && !bucketName.equals(record.getS3().getBucket().getName())) {
+            return null;
+        }
+
+        String key = URLDecoder.decode(record.getS3().getObject().getKey(), StandardCharsets.UTF_8);
+        return FileService.fileIdFromObjectKey(key);
+    }
+
+    private void runWorker() {
+        List<String> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                // Events arriving from here on queue the id again; updates are idempotent
+                batch.forEach(queued::remove);
+
+                fileService.markFilesUploaded(batch);
+                processed.add(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failed.add(batch.size());
+                System.err.println("Error applying S3 events: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    public record IngestResult(int accepted, int rejected) {
+    }
+}
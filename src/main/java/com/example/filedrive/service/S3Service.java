@@ -1,79 +1,162 @@
 package com.example.filedrive.service;
 
+import com.example.filedrive.cache.ExpiringCache;
+import io.micrometer.core.annotation.Timed;
 import lombok.Getter;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.BlockingInputStreamAsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.*;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.Upload;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
 
 import java.io.InputStream;
+import java.net.URI;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+// S3 calls are timed per method (presigning, multipart lifecycle, reads, deletes); the accessors are not
 @Service
 public class S3Service {
 
+    private static final int PARTS_PER_PRESIGN_TASK = 128;
+
     private final S3Client s3Client;
+    private final S3AsyncClient s3AsyncClient;
+    private final S3TransferManager transferManager;
     private final S3Presigner presigner;
+    private final ExecutorService presignExecutor;
     @Getter
     private final String bucketName;
+    // Prefix of the permanent object URLs stored with file metadata; follows the configured endpoint and addressing style
+    @Getter
+    private final String objectUrlPrefix;
+    @Getter
+    private final ExpiringCache<DownloadUrlKey, String> downloadUrlCache;
 
     public S3Service(
             @Value("${cloud.aws.credentials.access-key}") String accessKey,
             @Value("${cloud.aws.credentials.secret-key}") String secretKey,
             @Value("${cloud.aws.region.static}") String region,
-            @Value("${application.bucket.name}") String bucketName) {
+            @Value("${application.bucket.name}") String bucketName,
+            @Value("${application.presign.cache.max-entries:10000}") int presignCacheMaxEntries,
+            @Value("${application.s3.endpoint:}") String endpoint,
+            @Value("${application.s3.path-style-access:false}") boolean pathStyleAccess,
+            @Qualifier("presignExecutor") ExecutorService presignExecutor,
+            S3AsyncClient s3AsyncClient,
+            S3TransferManager transferManager) {
 
         this.bucketName = bucketName;
+        this.objectUrlPrefix = objectUrlPrefix(endpoint, pathStyleAccess, region, bucketName);
+        this.s3AsyncClient = s3AsyncClient;
+        this.transferManager = transferManager;
+        this.presignExecutor = presignExecutor;
+        this.downloadUrlCache = new ExpiringCache<>(presignCacheMaxEntries);
 
         try {
             AwsBasicCredentials awsCredentials = AwsBasicCredentials.create(accessKey, secretKey);
             StaticCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(awsCredentials);
 
-            this.s3Client = S3Client.builder()
+            S3ClientBuilder clientBuilder = S3Client.builder()
                     .region(Region.of(region))
                     .credentialsProvider(credentialsProvider)
-                    .build();
-
-            this.presigner = S3Presigner.builder()
+                    .forcePathStyle(pathStyleAccess);
+            S3Presigner.Builder presignerBuilder = S3Presigner.builder()
                     .region(Region.of(region))
                     .credentialsProvider(credentialsProvider)
-                    .build();
+                    .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(pathStyleAccess).build());
+            if (!endpoint.isBlank()) {
+                clientBuilder.endpointOverride(URI.create(endpoint));
+                presignerBuilder.endpointOverride(URI.create(endpoint));
+            }
+
+            this.s3Client = clientBuilder.build();
+            this.presigner = presignerBuilder.build();
         } catch (Exception e) {
             System.err.println("Failed to initialize S3 client: " + e.getMessage());
             throw new RuntimeException("Could not initialize S3 service: " + e.getMessage(), e);
         }
     }
 
-    public void deleteFile(String filePath) {
-        try {
-            if (filePath == null || filePath.isEmpty()) {
-                throw new IllegalArgumentException("File path cannot be null or empty");
-            }
+    private static String objectUrlPrefix(String endpoint, boolean pathStyleAccess, String region, String bucketName) {
+        if (endpoint.isBlank()) {
+            return pathStyleAccess
+                    ? "https://s3." + region + ".amazonaws.com/" + bucketName + "/"
+                    : "https://" + bucketName + ".s3.amazonaws.com/";
+        }
 
-            DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(filePath)
-                    .build();
+        URI uri = URI.create(endpoint);
+        String path = uri.getRawPath() == null ? "" : uri.getRawPath().replaceAll("/+$", "");
+        return pathStyleAccess
+                ? uri.getScheme() + "://" + uri.getRawAuthority() + path + "/" + bucketName + "/"
+                : uri.getScheme() + "://" + bucketName + "." + uri.getRawAuthority() + path + "/";
+    }
+
+    /**
+     * Opens the object for streaming. The optional range is passed through as an HTTP Range header,
+     * and the optional validators turn the read into a conditional GET (S3 answers 412 on mismatch).
+     */
+    @Timed(value = "filedrive.s3", histogram = true)
+    public ResponseInputStream<GetObjectResponse> getObjectStream(String objectKey, String range, String ifMatch, Instant ifUnmodifiedSince) {
+        if (objectKey == null || objectKey.isEmpty()) {
+            throw new IllegalArgumentException("Object key cannot be null or empty");
+        }
+
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .range(range)
+                .ifMatch(ifMatch)
+                .ifUnmodifiedSince(ifUnmodifiedSince)
+                .build();
+
+        return s3Client.getObject(getObjectRequest);
+    }
+
+    // HeadObject; a missing key is an answer, not an error
+    @Timed(value = "filedrive.s3", histogram = true)
+    public boolean objectExists(String objectKey) {
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
 
-            s3Client.deleteObject(deleteRequest);
+        try {
+            s3Client.headObject(headObjectRequest);
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
         } catch (S3Exception e) {
-            System.err.println("S3 service error while deleting file: " + e.getMessage());
-            throw new RuntimeException("Failed to delete file from S3: " + filePath, e);
-        } catch (Exception e) {
-            System.err.println("Unexpected error while deleting file: " + e.getMessage());
-            throw new RuntimeException("Failed to delete file from S3: " + filePath, e);
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw e;
         }
     }
 
+    @Timed(value = "filedrive.s3", histogram = true)
     public String generatePresignedDownloadUrl(String objectKey, Duration expiration) {
         try {
             if (objectKey == null || objectKey.isEmpty()) {
@@ -84,6 +167,12 @@ public class S3Service {
                 throw new IllegalArgumentException("Expiration duration cannot be null");
             }
 
+            DownloadUrlKey cacheKey = new DownloadUrlKey(objectKey, expiration.toSeconds());
+            String cachedUrl = downloadUrlCache.get(cacheKey);
+            if (cachedUrl != null) {
+                return cachedUrl;
+            }
+
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                     .bucket(bucketName)
                     .key(objectKey)
@@ -95,8 +184,13 @@ public class S3Service {
                     .build();
 
             PresignedGetObjectRequest presignedRequest = presigner.presignGetObject(presignRequest);
+            String url = presignedRequest.url().toString();
 
-            return presignedRequest.url().toString();
+            // Hand the URL out again only while at least half of its lifetime is left
+            long reusableUntil = presignedRequest.expiration().toEpochMilli() - expiration.toMillis() / 2;
+            downloadUrlCache.put(cacheKey, url, reusableUntil);
+
+            return url;
         } catch (IllegalArgumentException e) {
             throw e;
         } catch (S3Exception e) {
@@ -108,7 +202,23 @@ public class S3Service {
         }
     }
 
+    public void evictPresignedDownloadUrls(String objectKey) {
+        if (objectKey != null) {
+            downloadUrlCache.invalidateIf(key -> key.objectKey().equals(objectKey));
+        }
+    }
+
+    @Timed(value = "filedrive.s3", histogram = true)
     public String generatePresignedUploadUrl(String objectKey, Duration expiration) {
+        return generatePresignedUploadUrl(objectKey, expiration, null);
+    }
+
+    /**
+     * When a base64 SHA-256 checksum is given it becomes a signed header, so S3 rejects
+     * any upload whose content does not match it.
+     */
+    @Timed(value = "filedrive.s3", histogram = true)
+    public String generatePresignedUploadUrl(String objectKey, Duration expiration, String checksumSha256) {
         try {
             if (objectKey == null || objectKey.isEmpty()) {
                 throw new IllegalArgumentException("Object key cannot be null or empty");
@@ -121,6 +231,7 @@ public class S3Service {
             PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(objectKey)
+                    .checksumSHA256(checksumSha256)
                     .build();
 
             PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
@@ -142,28 +253,7 @@ public class S3Service {
         }
     }
 
-    public String initiateMultipartUpload(String objectKey) {
-        try {
-            if (objectKey == null || objectKey.isEmpty()) {
-                throw new IllegalArgumentException("Object key cannot be null or empty");
-            }
-
-            CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectKey)
-                    .build();
-
-            CreateMultipartUploadResponse response = s3Client.createMultipartUpload(createMultipartUploadRequest);
-            return response.uploadId();
-        } catch (S3Exception e) {
-            System.err.println("S3 service error initiating multipart upload: " + e.getMessage());
-            throw new RuntimeException("Failed to initiate multipart upload: " + e.getMessage(), e);
-        } catch (Exception e) {
-            System.err.println("Unexpected error initiating multipart upload: " + e.getMessage());
-            throw new RuntimeException("Failed to initiate multipart upload", e);
-        }
-    }
-
+    @Timed(value = "filedrive.s3", histogram = true)
     public String generatePresignedUploadUrlForChunk(String objectKey, String uploadId, int partNumber, Duration expiration) {
         try {
             UploadPartPresignRequest presignRequest = UploadPartPresignRequest.builder()
@@ -187,52 +277,168 @@ public class S3Service {
         }
     }
 
-    public void completeMultipartUpload(String objectKey, String uploadId, List<CompletedPart> completedParts) {
+    @Timed(value = "filedrive.s3", histogram = true)
+    public List<String> generatePresignedUploadUrlsForChunks(String objectKey, String uploadId, List<Integer> partNumbers, Duration expiration) {
+        if (partNumbers.size() <= PARTS_PER_PRESIGN_TASK) {
+            return partNumbers.stream()
+                    .map(partNumber -> generatePresignedUploadUrlForChunk(objectKey, uploadId, partNumber, expiration))
+                    .collect(Collectors.toList());
+        }
+
+        // Sign slices of the part list concurrently; the presigner is thread-safe and signing is CPU-bound
+        List<CompletableFuture<List<String>>> slices = new ArrayList<>();
+        for (int from = 0; from < partNumbers.size(); from += PARTS_PER_PRESIGN_TASK) {
+            List<Integer> slice = partNumbers.subList(from, Math.min(from + PARTS_PER_PRESIGN_TASK, partNumbers.size()));
+            slices.add(CompletableFuture.supplyAsync(() -> slice.stream()
+                    .map(partNumber -> generatePresignedUploadUrlForChunk(objectKey, uploadId, partNumber, expiration))
+                    .collect(Collectors.toList()), presignExecutor));
+        }
+
         try {
-            CompletedMultipartUpload multipartUpload = CompletedMultipartUpload.builder()
-                    .parts(completedParts)
-                    .build();
+            List<String> urls = new ArrayList<>(partNumbers.size());
+            for (CompletableFuture<List<String>> slice : slices) {
+                urls.addAll(slice.join());
+            }
+            return urls;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
 
-            CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectKey)
-                    .uploadId(uploadId)
-                    .multipartUpload(multipartUpload)
-                    .build();
+    // Deletes up to 1,000 keys in one request and returns key -> error for the ones S3 could not delete
+    @Timed(value = "filedrive.s3", histogram = true)
+    public Map<String, String> deleteObjects(List<String> objectKeys) {
+        if (objectKeys.isEmpty()) {
+            return Map.of();
+        }
+        if (objectKeys.size() > 1000) {
+            throw new IllegalArgumentException("DeleteObjects accepts at most 1000 keys");
+        }
 
-            s3Client.completeMultipartUpload(completeMultipartUploadRequest);
-        } catch (S3Exception e) {
-            System.err.println("S3 service error completing multipart upload: " + e.getMessage());
-            throw new RuntimeException("Failed to complete multipart upload: " + e.getMessage(), e);
-        } catch (Exception e) {
-            System.err.println("Unexpected error completing multipart upload: " + e.getMessage());
-            throw new RuntimeException("Failed to complete multipart upload", e);
+        DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder()
+                        .objects(objectKeys.stream()
+                                .map(key -> ObjectIdentifier.builder().key(key).build())
+                                .collect(Collectors.toList()))
+                        .quiet(true)
+                        .build())
+                .build();
+
+        DeleteObjectsResponse response = s3Client.deleteObjects(deleteObjectsRequest);
+        Map<String, String> errors = new HashMap<>();
+        for (S3Error error : response.errors()) {
+            errors.put(error.key(), error.code() + ": " + error.message());
         }
+        return errors;
     }
 
-    public void abortMultipartUpload(String objectKey, String uploadId) {
-        try {
-            if (objectKey == null || objectKey.isEmpty()) {
-                throw new IllegalArgumentException("Object key cannot be null or empty");
-            }
+    @Timed(value = "filedrive.s3", histogram = true)
+    public CompletableFuture<String> initiateMultipartUploadAsync(String objectKey) {
+        if (objectKey == null || objectKey.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Object key cannot be null or empty"));
+        }
 
-            if (uploadId == null || uploadId.isEmpty()) {
-                throw new IllegalArgumentException("Upload ID cannot be null or empty");
-            }
+        CreateMultipartUploadRequest createMultipartUploadRequest = CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .build();
 
-            AbortMultipartUploadRequest abortMultipartUploadRequest = AbortMultipartUploadRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectKey)
-                    .uploadId(uploadId)
-                    .build();
+        return wrapFailure(s3AsyncClient.createMultipartUpload(createMultipartUploadRequest)
+                .thenApply(CreateMultipartUploadResponse::uploadId), "Failed to initiate multipart upload");
+    }
 
-            s3Client.abortMultipartUpload(abortMultipartUploadRequest);
-        } catch (S3Exception e) {
-            System.err.println("S3 service error aborting multipart upload: " + e.getMessage());
-            throw new RuntimeException("Failed to abort multipart upload: " + e.getMessage(), e);
+    @Timed(value = "filedrive.s3", histogram = true)
+    public CompletableFuture<Void> completeMultipartUploadAsync(String objectKey, String uploadId, List<CompletedPart> completedParts) {
+        CompleteMultipartUploadRequest completeMultipartUploadRequest = CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                .build();
+
+        return wrapFailure(s3AsyncClient.completeMultipartUpload(completeMultipartUploadRequest)
+                .thenApply(response -> (Void) null), "Failed to complete multipart upload");
+    }
+
+    @Timed(value = "filedrive.s3", histogram = true)
+    public CompletableFuture<Void> abortMultipartUploadAsync(String objectKey, String uploadId) {
+        if (objectKey == null || objectKey.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Object key cannot be null or empty"));
+        }
+
+        if (uploadId == null || uploadId.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Upload ID cannot be null or empty"));
+        }
+
+        AbortMultipartUploadRequest abortMultipartUploadRequest = AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey)
+                .uploadId(uploadId)
+                .build();
+
+        return wrapFailure(s3AsyncClient.abortMultipartUpload(abortMultipartUploadRequest)
+                .thenApply(response -> (Void) null), "Failed to abort multipart upload");
+    }
+
+    // Pages through ListMultipartUploads lazily; each page is requested as iteration reaches it
+    @Timed(value = "filedrive.s3", histogram = true)
+    public Iterable<MultipartUpload> listMultipartUploads(String prefix) {
+        ListMultipartUploadsRequest request = ListMultipartUploadsRequest.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build();
+
+        return s3Client.listMultipartUploadsPaginator(request).uploads();
+    }
+
+    /**
+     * Streams the content into a Transfer Manager multipart upload. The calling thread feeds the
+     * stream and blocks until S3 has acknowledged the whole object; only the parts currently in
+     * flight are held in memory.
+     */
+    @Timed(value = "filedrive.s3", histogram = true)
+    public void uploadStream(String objectKey, InputStream content, long contentLength, String contentType) {
+        if (objectKey == null || objectKey.isEmpty()) {
+            throw new IllegalArgumentException("Object key cannot be null or empty");
+        }
+
+        BlockingInputStreamAsyncRequestBody requestBody = AsyncRequestBody.forBlockingInputStream(contentLength);
+        Upload upload = transferManager.upload(UploadRequest.builder()
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectKey)
+                        .contentType(contentType)
+                        .build())
+                .requestBody(requestBody)
+                .build());
+
+        try {
+            requestBody.writeInputStream(content);
+            upload.completionFuture().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("S3 service error streaming upload: " + cause.getMessage());
+            throw new RuntimeException("Failed to stream upload to S3: " + cause.getMessage(), cause);
         } catch (Exception e) {
-            System.err.println("Unexpected error aborting multipart upload: " + e.getMessage());
-            throw new RuntimeException("Failed to abort multipart upload", e);
+            upload.completionFuture().cancel(true);
+            System.err.println("Unexpected error streaming upload: " + e.getMessage());
+            throw new RuntimeException("Failed to stream upload to S3: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    private static <T> CompletableFuture<T> wrapFailure(CompletableFuture<T> future, String message) {
+        return future.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            System.err.println(message + ": " + cause.getMessage());
+            throw new RuntimeException(message + ": " + cause.getMessage(), cause);
+        });
+    }
+
+    public record DownloadUrlKey(String objectKey, long expirationSeconds) {
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.model.FileChunk;
+import com.example.filedrive.model.FileMetadata;
+import com.example.filedrive.model.FileStatus;
+import com.example.filedrive.repository.FileChunkRepository;
+import com.example.filedrive.repository.FileMetadataRepository;
+import com.example.filedrive.storage.PendingMultipartUpload;
+import com.example.filedrive.storage.StorageBackend;
+import com.example.filedrive.storage.StorageException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Aborts multipart uploads that were abandoned before completion, across all users, and completes
+ * single-part uploads whose ObjectCreated notification never arrived.
+ * <p>
+ * Each run first walks stale {@link FileChunk} rows in (lastUpdatedAt, fileId) keyset order, aborts
+ * the S3 upload and drops the upload state. It then lists the bucket's in-progress multipart uploads
+ * and aborts old ones the database no longer knows about (e.g. the app died between
+ * CreateMultipartUpload and saving the state). Aborts are asynchronous but limited both in
+ * concurrency and in rate so a large backlog doesn't starve user traffic of S3 connections.
+ * <p>
+ * Last, it pages URL_GENERATED files created between stale-after and reconcile-after-minutes ago;
+ * by then their upload URL has expired, so an object that exists is complete and the file is marked
+ * uploaded, as the notification would have done. Files without an object were abandoned and are
+ * left alone. HeadObject calls share the abort rate limit.
+ */
+@Service
+public class StaleUploadReaper {
+
+    private static final String OBJECT_KEY_PREFIX = "user/";
+
+    private final FileChunkRepository fileChunkRepository;
+    private final FileChunkService fileChunkService;
+    private final DatabaseService databaseService;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final FileService fileService;
+    private final StorageBackend storageBackend;
+
+    private final boolean enabled;
+    private final Duration staleAfter;
+    private final Duration reconcileAfter;
+    private final int pageSize;
+    private final int maxConcurrentAborts;
+    private final Semaphore abortPermits;
+    private final long abortIntervalNanos;
+    private long nextAbortAt;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong aborted = new AtomicLong();
+    private final AtomicLong orphansAborted = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong lastRunStartedAt = new AtomicLong();
+    private final AtomicLong lastRunDurationMillis = new AtomicLong();
+
+    @Autowired
+    public StaleUploadReaper(FileChunkRepository fileChunkRepository,
+                             FileChunkService fileChunkService,
+                             DatabaseService databaseService,
+                             FileMetadataRepository fileMetadataRepository,
+                             FileService fileService,
+                             StorageBackend storageBackend,
+                             @Value("${application.reaper.enabled:true}") boolean enabled,
+                             @Value("${application.reaper.stale-after-hours:168}") long staleAfterHours,
+                             @Value("${application.reaper.reconcile-after-minutes:20}") long reconcileAfterMinutes,
+                             @Value("${application.reaper.page-size:200}") int pageSize,
+                             @Value("${application.reaper.max-concurrent-aborts:8}") int maxConcurrentAborts,
+                             @Value("${application.reaper.max-aborts-per-second:20}") int maxAbortsPerSecond) {
+        this.fileChunkRepository = fileChunkRepository;
+        this.fileChunkService = fileChunkService;
+        this.databaseService = databaseService;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.fileService = fileService;
+        this.storageBackend = storageBackend;
+        this.enabled = enabled;
+        this.staleAfter = Duration.ofHours(staleAfterHours);
+        this.reconcileAfter = Duration.ofMinutes(reconcileAfterMinutes);
+        this.pageSize = pageSize;
+        this.maxConcurrentAborts = maxConcurrentAborts;
+        this.abortPermits = new Semaphore(maxConcurrentAborts);
+        this.abortIntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, maxAbortsPerSecond);
+    }
+
+    @Scheduled(initialDelayString = "${application.reaper.initial-delay-ms:300000}",
+            fixedDelayString = "${application.reaper.interval-ms:3600000}")
+    public void reap() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        lastRunStartedAt.set(started);
+        runs.incrementAndGet();
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(staleAfter);
+            reapTrackedUploads(cutoff);
+            reconcileWithS3(Instant.now().minus(staleAfter));
+            reconcileUnconfirmedUploads(LocalDateTime.now());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.err.println("Error reaping stale uploads: " + e.getMessage());
+        } finally {
+            lastRunDurationMillis.set(System.currentTimeMillis() - started);
+            running.set(false);
+        }
+    }
+
+    private void reapTrackedUploads(LocalDateTime cutoff) throws InterruptedException {
+        List<FileChunk> page = fileChunkRepository.findByLastUpdatedAtBeforeOrderByLastUpdatedAtAscFileIdAsc(
+                cutoff, PageRequest.of(0, pageSize));
+        while (!page.isEmpty()) {
+            for (FileChunk upload : page) {
+                scanned.incrementAndGet();
+                reapTrackedUpload(upload);
+            }
+            awaitInFlightAborts();
+
+            if (page.size() < pageSize) {
+                return;
+            }
+            FileChunk last = page.get(page.size() - 1);
+            page = fileChunkRepository.findStaleAfter(
+                    cutoff, last.getLastUpdatedAt(), last.getFileId(), PageRequest.of(0, pageSize));
+        }
+    }
+
+    private void reapTrackedUpload(FileChunk upload) throws InterruptedException {
+        FileMetadata fileMetadata = databaseService.getFileMetadata(upload.getFileId());
+        String objectKey = fileMetadata != null
+                ? fileMetadata.getFilePath()
+                : OBJECT_KEY_PREFIX + upload.getUserId() + "/" + upload.getFileId();
+
+        abort(objectKey, upload.getUploadId()).thenAccept(abortedInS3 -> {
+            if (!abortedInS3) {
+                // Keep the state so the next run retries
+                return;
+            }
+            try {
+                fileChunkService.removeUploadState(upload.getFileId());
+                if (fileMetadata != null && isUnfinishedMultipart(fileMetadata)) {
+                    databaseService.deleteFile(upload.getFileId());
+                }
+                aborted.incrementAndGet();
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                System.err.println("Error removing stale upload state for " + upload.getFileId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void reconcileWithS3(Instant cutoff) throws InterruptedException {
+        List<PendingMultipartUpload> batch = new ArrayList<>(pageSize);
+        for (PendingMultipartUpload upload : storageBackend.listMultipartUploads(OBJECT_KEY_PREFIX)) {
+            if (upload.initiated() != null && upload.initiated().isBefore(cutoff)) {
+                batch.add(upload);
+            }
+            if (batch.size() == pageSize) {
+                abortUntracked(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            abortUntracked(batch);
+        }
+    }
+
+    private void abortUntracked(List<PendingMultipartUpload> uploads) throws InterruptedException {
+        List<String> fileIds = uploads.stream()
+                .map(upload -> FileService.fileIdFromObjectKey(upload.objectKey()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        Map<String, String> trackedUploadIds = fileChunkRepository.findAllById(fileIds).stream()
+                .collect(Collectors.toMap(FileChunk::getFileId, FileChunk::getUploadId));
+
+        for (PendingMultipartUpload upload : uploads) {
+            String fileId = FileService.fileIdFromObjectKey(upload.objectKey());
+            if (fileId == null || upload.uploadId().equals(trackedUploadIds.get(fileId))) {
+                continue;
+            }
+            abort(upload.objectKey(), upload.uploadId()).thenAccept(abortedInS3 -> {
+                if (abortedInS3) {
+                    orphansAborted.incrementAndGet();
+                }
+            });
+        }
+        awaitInFlightAborts();
+    }
+
+    private void reconcileUnconfirmedUploads(LocalDateTime now) throws InterruptedException {
+        LocalDateTime notBefore = now.minus(staleAfter);
+        LocalDateTime cutoff = now.minus(reconcileAfter);
+        LocalDateTime afterTime = notBefore;
+        String afterId = "";
+        while (true) {
+            List<FileMetadata> page = fileMetadataRepository.findUnconfirmedUploadsAfter(
+                    notBefore, cutoff, afterTime, afterId, PageRequest.of(0, pageSize));
+            List<String> uploaded = new ArrayList<>();
+            for (FileMetadata fileMetadata : page) {
+                scanned.incrementAndGet();
+                throttle();
+                try {
+                    if (storageBackend.objectExists(fileMetadata.getFilePath())) {
+                        uploaded.add(fileMetadata.getFileId());
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println("Error checking upload of " + fileMetadata.getFileId() + ": " + e.getMessage());
+                }
+            }
+            if (!uploaded.isEmpty()) {
+                reconciled.addAndGet(fileService.markFilesUploaded(uploaded));
+            }
+
+            if (page.size() < pageSize) {
+                return;
+            }
+            FileMetadata last = page.get(page.size() - 1);
+            afterTime = last.getCreatedAt();
+            afterId = last.getFileId();
+        }
+    }
+
+    // Completes with true once S3 no longer has the upload
+    private CompletableFuture<Boolean> abort(String objectKey, String uploadId) throws InterruptedException {
+        throttle();
+        abortPermits.acquire();
+        return storageBackend.abortMultipartUpload(objectKey, uploadId)
+                .handle((ignored, error) -> {
+                    if (error == null || isNoSuchUpload(error)) {
+                        return true;
+                    }
+                    failures.incrementAndGet();
+                    return false;
+                })
+                .whenComplete((result, error) -> abortPermits.release());
+    }
+
+    private void throttle() throws InterruptedException {
+        long now = System.nanoTime();
+        if (nextAbortAt - now > 0) {
+            TimeUnit.NANOSECONDS.sleep(nextAbortAt - now);
+            now = nextAbortAt;
+        }
+        nextAbortAt = now + abortIntervalNanos;
+    }
+
+    private void awaitInFlightAborts() throws InterruptedException {
+        abortPermits.acquire(maxConcurrentAborts);
+        abortPermits.release(maxConcurrentAborts);
+    }
+
+    private static boolean isNoSuchUpload(Throwable error) {
+        return StorageException.statusCodeOf(error) == 404;
+    }
+
+    private static boolean isUnfinishedMultipart(FileMetadata fileMetadata) {
+        return FileStatus.MULTIPART_INITIATED.toString().equals(fileMetadata.getStatus())
+                || FileStatus.MULTIPART_IN_PROGRESS.toString().equals(fileMetadata.getStatus());
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long getRunCount() {
+        return runs.get();
+    }
+
+    public long getScannedCount() {
+        return scanned.get();
+    }
+
+    public long getAbortedCount() {
+        return aborted.get();
+    }
+
+    public long getOrphansAbortedCount() {
+        return orphansAborted.get();
+    }
+
+    public long getReconciledCount() {
+        return reconciled.get();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    public long getLastRunStartedAt() {
+        return lastRunStartedAt.get();
+    }
+
+    public long getLastRunDurationMillis() {
+        return lastRunDurationMillis.get();
+    }
+}
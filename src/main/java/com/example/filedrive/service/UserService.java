@@ -3,8 +3,11 @@ package com.example.filedrive.service;
 import com.example.filedrive.dto.SearchUser;
 import com.example.filedrive.model.User;
 import com.example.filedrive.repository.UserRepository;
+import com.example.filedrive.search.UserSearchIndex;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.annotation.Validated;
 
@@ -17,10 +20,16 @@ import java.util.List;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserSearchIndex userSearchIndex;
+    private final int maxSearchResults;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository,
+                       UserSearchIndex userSearchIndex,
+                       @Value("${application.user-search.max-results:50}") int maxSearchResults) {
         this.userRepository = userRepository;
+        this.userSearchIndex = userSearchIndex;
+        this.maxSearchResults = maxSearchResults;
     }
 
 //    public Integer createUser(@Valid UserRequest userRequest) {
@@ -65,6 +74,7 @@ public class UserService {
             user.setName(name);
             user.setId(uid);
             userRepository.save(user);
+            userSearchIndex.upsert(uid, name, email);
         }catch (Exception e) {
             System.err.println("Error creating user: " + e.getMessage());
             throw new RuntimeException("Failed to create user: " + e.getMessage(), e);
@@ -90,16 +100,21 @@ public class UserService {
         }
     }
 
-    public List<SearchUser> searchUsers(String searchKeyword) {
+    public List<SearchUser> searchUsers(String searchKeyword, int limit) {
         try {
             if (searchKeyword == null || searchKeyword.trim().isEmpty()) {
                 throw new IllegalArgumentException("Search keyword cannot be empty");
             }
 
+            int cappedLimit = Math.max(1, Math.min(limit, maxSearchResults));
+            if (userSearchIndex.isReady()) {
+                return userSearchIndex.search(searchKeyword, cappedLimit);
+            }
+
             List<User> userList;
             try {
                 userList = userRepository.findDistinctByEmailContainingOrNameContaining(
-                        searchKeyword, searchKeyword);
+                        searchKeyword, searchKeyword, PageRequest.of(0, cappedLimit));
 
                 if (userList == null) {
                     return Collections.emptyList();
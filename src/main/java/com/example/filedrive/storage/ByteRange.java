@@ -0,0 +1,62 @@
+package com.example.filedrive.storage;
+
+/**
+ * A single byte range from a Range header. Suffix ranges have a null start.
+ * Multi-range requests are not supported and are served as a full response.
+ */
+public record ByteRange(Long first, Long last) {
+
+    public static ByteRange parse(String header) {
+        if (header == null || !header.startsWith("bytes=") || header.contains(",")) {
+            return null;
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            if (from.isEmpty()) {
+                return to.isEmpty() ? null : new ByteRange(null, Long.parseLong(to));
+            }
+
+            Long first = Long.parseLong(from);
+            Long last = to.isEmpty() ? null : Long.parseLong(to);
+            if (last != null && last < first) {
+                return null;
+            }
+            return new ByteRange(first, last);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public boolean isSatisfiable(long length) {
+        if (first == null) {
+            return last > 0 && length > 0;
+        }
+        return first < length;
+    }
+
+    public long start(long length) {
+        return first == null ? Math.max(0, length - last) : first;
+    }
+
+    public long end(long length) {
+        if (first == null || last == null) {
+            return length - 1;
+        }
+        return Math.min(last, length - 1);
+    }
+
+    public String toHeader() {
+        if (first == null) {
+            return "bytes=-" + last;
+        }
+        return "bytes=" + first + "-" + (last != null ? last : "");
+    }
+}
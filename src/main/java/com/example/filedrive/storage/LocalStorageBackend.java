@@ -0,0 +1,617 @@
+package com.example.filedrive.storage;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Objects on a local disk, for on-prem and development deployments. Clients get HMAC-signed URLs
+ * to the local storage controller in place of presigned S3 URLs. Bodies are streamed to disk with
+ * positional FileChannel writes; each part is its own file, named after its ETag, and completion
+ * concatenates the parts with transferTo (copy_file_range/sendfile, no copy through the heap).
+ * Reads up to the mmap threshold are served from a memory-mapped region.
+ * Layout under the root: objects/&lt;key&gt;, uploads/&lt;uploadId&gt;/, tmp/.
+ */
+@Component
+@ConditionalOnProperty(name = "application.storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    public static final String TOKEN_PATH = "/api/v1/drive/storage/local/";
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{32}");
+    private static final String UPLOAD_KEY_FILE = "upload.key";
+    private static final String OBJECT_URL_PREFIX = "local:";
+    private static final int MAX_PART_NUMBER = 10000;
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+    private static final Base64.Encoder TOKEN_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder TOKEN_DECODER = Base64.getUrlDecoder();
+
+    private final Path objectsDir;
+    private final Path uploadsDir;
+    private final Path tmpDir;
+    private final String baseUrl;
+    private final long mmapThresholdBytes;
+    private final ExecutorService ioExecutor;
+    private final ThreadLocal<Mac> tokenMac;
+
+    public LocalStorageBackend(
+            @Value("${application.storage.local.root-dir:./filedrive-storage}") String rootDir,
+            @Value("${application.storage.local.base-url:http://localhost:8080}") String baseUrl,
+            @Value("${application.storage.local.token-secret:}") String tokenSecret,
+            @Value("${application.storage.local.mmap-threshold-bytes:4194304}") long mmapThresholdBytes,
+            // Multipart lifecycle calls block on disk, so they run on the pool that completes async S3 calls
+            @Qualifier("s3CompletionExecutor") ExecutorService ioExecutor) {
+
+        Path root = Paths.get(rootDir).toAbsolutePath().normalize();
+        this.objectsDir = root.resolve("objects");
+        this.uploadsDir = root.resolve("uploads");
+        this.tmpDir = root.resolve("tmp");
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.mmapThresholdBytes = mmapThresholdBytes;
+        this.ioExecutor = ioExecutor;
+
+        try {
+            Files.createDirectories(objectsDir);
+            Files.createDirectories(uploadsDir);
+            Files.createDirectories(tmpDir);
+        } catch (IOException e) {
+            System.err.println("Failed to initialize local storage: " + e.getMessage());
+            throw new RuntimeException("Could not initialize local storage under " + root + ": " + e.getMessage(), e);
+        }
+
+        byte[] key;
+        if (tokenSecret.isBlank()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            System.err.println("application.storage.local.token-secret is not set; "
+                    + "upload and download URLs will not survive a restart or work across instances");
+        } else {
+            key = tokenSecret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.tokenMac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(key, "HmacSHA256"));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HmacSHA256 not available", e);
+            }
+        });
+    }
+
+    // Key-only reference: the files are only reachable through signed URLs, and their location on disk is not public
+    @Override
+    public String objectUrl(String objectKey) {
+        return OBJECT_URL_PREFIX + objectKey;
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public String presignUpload(String objectKey, Duration expiration, String checksumSha256) {
+        objectPath(objectKey);
+        return sign(new Grant(Operation.PUT_OBJECT, objectKey, null, 0, checksumSha256), expiration);
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public String presignDownload(String objectKey, Duration expiration) {
+        objectPath(objectKey);
+        return sign(new Grant(Operation.GET_OBJECT, objectKey, null, 0, null), expiration);
+    }
+
+    // Signing is a single HMAC, so download URLs are not cached
+    @Override
+    public void evictDownloadUrls(String objectKey) {
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public CompletableFuture<String> createMultipartUpload(String objectKey) {
+        return async("Failed to initiate multipart upload", () -> {
+            objectPath(objectKey);
+            String uploadId = UUID.randomUUID().toString().replace("-", "");
+            Path uploadDir = Files.createDirectory(uploadsDir.resolve(uploadId));
+            Files.writeString(uploadDir.resolve(UPLOAD_KEY_FILE), objectKey);
+            return uploadId;
+        });
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public String presignUploadPart(String objectKey, String uploadId, int partNumber, Duration expiration) {
+        objectPath(objectKey);
+        return sign(new Grant(Operation.PUT_PART, objectKey, uploadId, partNumber, null), expiration);
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public List<String> presignUploadParts(String objectKey, String uploadId, List<Integer> partNumbers, Duration expiration) {
+        return partNumbers.stream()
+                .map(partNumber -> presignUploadPart(objectKey, uploadId, partNumber, expiration))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public CompletableFuture<Void> completeMultipartUpload(String objectKey, String uploadId, List<CompletedPart> parts) {
+        return async("Failed to complete multipart upload", () -> {
+            Path uploadDir = existingUpload(objectKey, uploadId);
+            if (parts == null || parts.isEmpty()) {
+                throw new StorageException(400, "No parts given for upload " + uploadId);
+            }
+
+            List<Path> partFiles = new ArrayList<>(parts.size());
+            for (CompletedPart part : parts.stream().sorted(Comparator.comparing(CompletedPart::partNumber)).toList()) {
+                Path partFile = partFile(uploadDir, part.partNumber(), part.eTag());
+                if (!Files.isRegularFile(partFile)) {
+                    throw new StorageException(400, "Part " + part.partNumber() + " was not uploaded or its ETag does not match");
+                }
+                partFiles.add(partFile);
+            }
+
+            Path target = objectPath(objectKey);
+            Path temp = tempFile();
+            try {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    for (Path partFile : partFiles) {
+                        try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                            long size = in.size();
+                            for (long position = 0; position < size; ) {
+                                long sent = in.transferTo(position, size - position, out);
+                                if (sent <= 0) {
+                                    throw new IOException("No progress concatenating " + partFile);
+                                }
+                                position += sent;
+                            }
+                        }
+                    }
+                    out.force(false);
+                }
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            deleteRecursively(uploadDir);
+            return null;
+        });
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public CompletableFuture<Void> abortMultipartUpload(String objectKey, String uploadId) {
+        return async("Failed to abort multipart upload", () -> {
+            deleteRecursively(existingUpload(objectKey, uploadId));
+            return null;
+        });
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public Iterable<PendingMultipartUpload> listMultipartUploads(String prefix) {
+        List<PendingMultipartUpload> uploads = new ArrayList<>();
+        try (DirectoryStream<Path> uploadDirs = Files.newDirectoryStream(uploadsDir)) {
+            for (Path uploadDir : uploadDirs) {
+                Path keyFile = uploadDir.resolve(UPLOAD_KEY_FILE);
+                if (!Files.isRegularFile(keyFile)) {
+                    continue;
+                }
+                String objectKey = Files.readString(keyFile);
+                if (prefix == null || objectKey.startsWith(prefix)) {
+                    uploads.add(new PendingMultipartUpload(objectKey, uploadDir.getFileName().toString(),
+                            Files.getLastModifiedTime(keyFile).toInstant()));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing local multipart uploads: " + e.getMessage());
+            throw new RuntimeException("Failed to list multipart uploads: " + e.getMessage(), e);
+        }
+        return uploads;
+    }
+
+    // The content type lives in the file metadata, so it is not stored with the object
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public void putObject(String objectKey, InputStream content, long contentLength, String contentType) {
+        writeObject(objectKey, content, contentLength, null);
+    }
+
+    /**
+     * Stores the object and returns its ETag. The object appears under its key only once the
+     * whole body has been written (and matched the checksum, when one was signed into the URL).
+     */
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public String writeObject(String objectKey, InputStream content, long contentLength, String checksumSha256) {
+        Path target = objectPath(objectKey);
+        Path temp = tempFile();
+        try {
+            try {
+                MessageDigest sha256 = checksumSha256 != null ? digest("SHA-256") : null;
+                write(temp, content, contentLength, sha256);
+                if (sha256 != null && !Base64.getEncoder().encodeToString(sha256.digest()).equals(checksumSha256)) {
+                    throw new StorageException(400, "Content does not match the signed SHA-256 checksum");
+                }
+                Files.createDirectories(target.getParent());
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+            return eTag(attributes.size(), attributes.lastModifiedTime().toInstant());
+        } catch (IOException e) {
+            System.err.println("Error storing object " + objectKey + ": " + e.getMessage());
+            throw new RuntimeException("Failed to store object: " + e.getMessage(), e);
+        }
+    }
+
+    // Stores one part of a multipart upload and returns its ETag (the quoted hex MD5, as S3 does)
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public String writePart(String objectKey, String uploadId, int partNumber, InputStream content, long contentLength) {
+        if (partNumber < 1 || partNumber > MAX_PART_NUMBER) {
+            throw new StorageException(400, "Part number must be between 1 and " + MAX_PART_NUMBER);
+        }
+
+        try {
+            Path uploadDir = existingUpload(objectKey, uploadId);
+            Path temp = uploadDir.resolve(partNumber + "-" + UUID.randomUUID() + ".tmp");
+            try {
+                MessageDigest md5 = digest("MD5");
+                write(temp, content, contentLength, md5);
+                String eTag = "\"" + HexFormat.of().formatHex(md5.digest()) + "\"";
+                // Re-uploading a part leaves the earlier file behind; completion picks by ETag
+                Files.move(temp, partFile(uploadDir, partNumber, eTag), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+                return eTag;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            System.err.println("Error storing part " + partNumber + " of upload " + uploadId + ": " + e.getMessage());
+            throw new RuntimeException("Failed to store part: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public ObjectContent getObject(String objectKey, ByteRange range, String ifMatch, Instant ifUnmodifiedSince) {
+        Path file = objectPath(objectKey);
+        try {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                throw new StorageException(404, "The specified key does not exist: " + objectKey);
+            }
+
+            long length = attributes.size();
+            Instant lastModified = attributes.lastModifiedTime().toInstant();
+            String eTag = eTag(length, lastModified);
+            // HTTP dates have second precision
+            if ((ifMatch != null && !ifMatch.equals(eTag))
+                    || (ifUnmodifiedSince != null && lastModified.getEpochSecond() > ifUnmodifiedSince.getEpochSecond())) {
+                throw new StorageException(412, "Object has changed: " + objectKey);
+            }
+
+            long start = 0;
+            long end = length - 1;
+            String contentRange = null;
+            if (range != null) {
+                if (!range.isSatisfiable(length)) {
+                    throw new StorageException(416, "Range not satisfiable for object of " + length + " bytes");
+                }
+                start = range.start(length);
+                end = range.end(length);
+                contentRange = "bytes " + start + "-" + end + "/" + length;
+            }
+            long count = Math.max(0, end - start + 1);
+
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            InputStream content;
+            if (count <= mmapThresholdBytes) {
+                // The mapping outlives the channel, and its pages are shared with the page cache
+                try (channel) {
+                    content = new MappedInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, count));
+                }
+            } else {
+                content = new ChannelRangeInputStream(channel, start, count);
+            }
+            return new ObjectContent(content, count, contentRange, eTag, lastModified);
+        } catch (IOException e) {
+            System.err.println("Error reading object " + objectKey + ": " + e.getMessage());
+            throw new RuntimeException("Failed to read object: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public boolean objectExists(String objectKey) {
+        return Files.isRegularFile(objectPath(objectKey));
+    }
+
+    @Override
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public Map<String, String> deleteObjects(List<String> objectKeys) {
+        if (objectKeys.size() > 1000) {
+            throw new IllegalArgumentException("DeleteObjects accepts at most 1000 keys");
+        }
+
+        Map<String, String> errors = new HashMap<>();
+        for (String objectKey : objectKeys) {
+            try {
+                Files.deleteIfExists(objectPath(objectKey));
+            } catch (IOException | RuntimeException e) {
+                errors.put(objectKey, e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public Path localPath(String objectKey) {
+        Path file = objectPath(objectKey);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * Checks a token from a signed URL and returns what it grants; invalid or expired tokens fail with 403.
+     */
+    @Timed(value = "filedrive.storage.local", histogram = true)
+    public Grant verify(String token) {
+        int dot = token.indexOf('.');
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = TOKEN_DECODER.decode(token.substring(0, Math.max(dot, 0)));
+            signature = TOKEN_DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            throw new StorageException(403, "Malformed storage token");
+        }
+        if (dot < 0 || !MessageDigest.isEqual(tokenMac.get().doFinal(payload), signature)) {
+            throw new StorageException(403, "Invalid storage token");
+        }
+
+        // operation, upload id, part number, expiry, checksum, key (last, so it may contain anything)
+        String[] fields = new String(payload, StandardCharsets.UTF_8).split("\n", 6);
+        if (Instant.now().getEpochSecond() > Long.parseLong(fields[3])) {
+            throw new StorageException(403, "Storage token has expired");
+        }
+        return new Grant(Operation.valueOf(fields[0]), fields[5], fields[1].isEmpty() ? null : fields[1],
+                Integer.parseInt(fields[2]), fields[4].isEmpty() ? null : fields[4]);
+    }
+
+    private String sign(Grant grant, Duration expiration) {
+        String payload = String.join("\n",
+                grant.operation().name(),
+                grant.uploadId() != null ? grant.uploadId() : "",
+                Integer.toString(grant.partNumber()),
+                Long.toString(Instant.now().plus(expiration).getEpochSecond()),
+                grant.checksumSha256() != null ? grant.checksumSha256() : "",
+                grant.objectKey());
+        byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+        return baseUrl + TOKEN_PATH + TOKEN_ENCODER.encodeToString(bytes) + "."
+                + TOKEN_ENCODER.encodeToString(tokenMac.get().doFinal(bytes));
+    }
+
+    private Path objectPath(String objectKey) {
+        if (objectKey == null || objectKey.isEmpty()) {
+            throw new IllegalArgumentException("Object key cannot be null or empty");
+        }
+
+        Path path = objectsDir.resolve(objectKey).normalize();
+        if (!path.startsWith(objectsDir) || path.equals(objectsDir)) {
+            throw new IllegalArgumentException("Object key is outside the storage root: " + objectKey);
+        }
+        return path;
+    }
+
+    private Path existingUpload(String objectKey, String uploadId) throws IOException {
+        if (uploadId != null && UPLOAD_ID.matcher(uploadId).matches()) {
+            Path keyFile = uploadsDir.resolve(uploadId).resolve(UPLOAD_KEY_FILE);
+            if (Files.isRegularFile(keyFile) && Files.readString(keyFile).equals(objectKey)) {
+                return keyFile.getParent();
+            }
+        }
+        throw new StorageException(404, "The specified upload does not exist: " + uploadId);
+    }
+
+    private static Path partFile(Path uploadDir, int partNumber, String eTag) {
+        String hex = eTag == null ? "" : eTag.replace("\"", "");
+        if (!hex.matches("[0-9a-f]{32}")) {
+            // Cannot name an existing part file
+            return uploadDir.resolve(partNumber + "-missing.part");
+        }
+        return uploadDir.resolve(partNumber + "-" + hex + ".part");
+    }
+
+    private Path tempFile() {
+        return tmpDir.resolve(UUID.randomUUID().toString());
+    }
+
+    // Same validator FileStreamingService uses for files served from disk
+    private static String eTag(long length, Instant lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified.toEpochMilli()) + "\"";
+    }
+
+    private static void write(Path file, InputStream content, long expectedLength, MessageDigest digest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        byte[] array = buffer.array();
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = content.read(array)) != -1) {
+                if (digest != null) {
+                    digest.update(array, 0, read);
+                }
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+        }
+
+        if (expectedLength >= 0 && position != expectedLength) {
+            throw new StorageException(400, "Expected " + expectedLength + " bytes but received " + position);
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+
+    private <T> CompletableFuture<T> async(String failureMessage, IoTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run();
+            } catch (IOException e) {
+                System.err.println(failureMessage + ": " + e.getMessage());
+                throw new RuntimeException(failureMessage + ": " + e.getMessage(), e);
+            }
+        }, ioExecutor);
+    }
+
+    @FunctionalInterface
+    private interface IoTask<T> {
+        T run() throws IOException;
+    }
+
+    public enum Operation {
+        PUT_OBJECT, PUT_PART, GET_OBJECT
+    }
+
+    public record Grant(Operation operation, String objectKey, String uploadId, int partNumber, String checksumSha256) {
+    }
+
+    private static final class MappedInputStream extends InputStream {
+
+        private final MappedByteBuffer buffer;
+
+        MappedInputStream(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+    }
+
+    // Positional reads of one range; the channel is never repositioned, so the stream owns nothing shared
+    private static final class ChannelRangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        ChannelRangeInputStream(FileChannel channel, long start, long count) {
+            this.channel = channel;
+            this.position = start;
+            this.remaining = count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, remaining)), position);
+            if (read <= 0) {
+                return -1;
+            }
+            position += read;
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.filedrive.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * An open object read. contentRange is the Content-Range value for ranged reads and null otherwise.
+ */
+public record ObjectContent(InputStream content, Long contentLength, String contentRange, String eTag,
+                            Instant lastModified) implements Closeable {
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
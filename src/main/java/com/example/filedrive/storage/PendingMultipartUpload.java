@@ -0,0 +1,6 @@
+package com.example.filedrive.storage;
+
+import java.time.Instant;
+
+public record PendingMultipartUpload(String objectKey, String uploadId, Instant initiated) {
+}
@@ -0,0 +1,148 @@
+package com.example.filedrive.storage;
+
+import com.example.filedrive.service.S3Service;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.MultipartUpload;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.StreamSupport;
+
+/**
+ * The S3 engine: presigned URLs and the multipart lifecycle go through {@link S3Service}, with S3
+ * error responses reported as {@link StorageException}s carrying S3's status code.
+ */
+@Component
+@ConditionalOnProperty(name = "application.storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3StorageBackend implements StorageBackend {
+
+    private final S3Service s3Service;
+
+    public S3StorageBackend(S3Service s3Service) {
+        this.s3Service = s3Service;
+    }
+
+    @Override
+    public String objectUrl(String objectKey) {
+        return s3Service.getObjectUrlPrefix() + objectKey;
+    }
+
+    @Override
+    public String presignUpload(String objectKey, Duration expiration, String checksumSha256) {
+        return s3Service.generatePresignedUploadUrl(objectKey, expiration, checksumSha256);
+    }
+
+    @Override
+    public String presignDownload(String objectKey, Duration expiration) {
+        return s3Service.generatePresignedDownloadUrl(objectKey, expiration);
+    }
+
+    @Override
+    public void evictDownloadUrls(String objectKey) {
+        s3Service.evictPresignedDownloadUrls(objectKey);
+    }
+
+    @Override
+    public CompletableFuture<String> createMultipartUpload(String objectKey) {
+        return translate(s3Service.initiateMultipartUploadAsync(objectKey));
+    }
+
+    @Override
+    public String presignUploadPart(String objectKey, String uploadId, int partNumber, Duration expiration) {
+        return s3Service.generatePresignedUploadUrlForChunk(objectKey, uploadId, partNumber, expiration);
+    }
+
+    @Override
+    public List<String> presignUploadParts(String objectKey, String uploadId, List<Integer> partNumbers, Duration expiration) {
+        return s3Service.generatePresignedUploadUrlsForChunks(objectKey, uploadId, partNumbers, expiration);
+    }
+
+    @Override
+    public CompletableFuture<Void> completeMultipartUpload(String objectKey, String uploadId, List<CompletedPart> parts) {
+        return translate(s3Service.completeMultipartUploadAsync(objectKey, uploadId, parts));
+    }
+
+    @Override
+    public CompletableFuture<Void> abortMultipartUpload(String objectKey, String uploadId) {
+        return translate(s3Service.abortMultipartUploadAsync(objectKey, uploadId));
+    }
+
+    // Still lazy: each ListMultipartUploads page is requested as iteration reaches it
+    @Override
+    public Iterable<PendingMultipartUpload> listMultipartUploads(String prefix) {
+        Iterable<MultipartUpload> uploads = s3Service.listMultipartUploads(prefix);
+        return () -> StreamSupport.stream(uploads.spliterator(), false)
+                .map(upload -> new PendingMultipartUpload(upload.key(), upload.uploadId(), upload.initiated()))
+                .iterator();
+    }
+
+    @Override
+    public void putObject(String objectKey, InputStream content, long contentLength, String contentType) {
+        try {
+            s3Service.uploadStream(objectKey, content, contentLength, contentType);
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public ObjectContent getObject(String objectKey, ByteRange range, String ifMatch, Instant ifUnmodifiedSince) {
+        ResponseInputStream<GetObjectResponse> object;
+        try {
+            object = s3Service.getObjectStream(objectKey, range != null ? range.toHeader() : null, ifMatch, ifUnmodifiedSince);
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+
+        GetObjectResponse response = object.response();
+        return new ObjectContent(object, response.contentLength(), response.contentRange(), response.eTag(),
+                response.lastModified());
+    }
+
+    @Override
+    public boolean objectExists(String objectKey) {
+        try {
+            return s3Service.objectExists(objectKey);
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteObjects(List<String> objectKeys) {
+        try {
+            return s3Service.deleteObjects(objectKeys);
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> translate(CompletableFuture<T> future) {
+        return future.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+            throw translate(error);
+        });
+    }
+
+    private static RuntimeException translate(Throwable error) {
+        Throwable failure = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof S3Exception s3Exception) {
+                return new StorageException(s3Exception.statusCode(), failure.getMessage(), failure);
+            }
+        }
+        return failure instanceof RuntimeException runtimeException ? runtimeException : new RuntimeException(failure);
+    }
+}
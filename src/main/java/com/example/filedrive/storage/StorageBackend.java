@@ -0,0 +1,64 @@
+package com.example.filedrive.storage;
+
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Object storage as the services see it: short-lived upload/download URLs that clients use
+ * directly, the multipart lifecycle, proxied reads and writes, and deletes. Selected with
+ * {@code application.storage.backend} ({@code s3}, the default, or {@code local}).
+ * Failures that callers act on are reported as {@link StorageException} with an HTTP status.
+ */
+public interface StorageBackend {
+
+    // Permanent reference stored with the file metadata; objectUrl("") is the common prefix
+    String objectUrl(String objectKey);
+
+    /**
+     * When a base64 SHA-256 checksum is given the upload is only accepted if the content matches it.
+     */
+    String presignUpload(String objectKey, Duration expiration, String checksumSha256);
+
+    String presignDownload(String objectKey, Duration expiration);
+
+    // Drops any download URLs handed out for the key that would otherwise be reused
+    void evictDownloadUrls(String objectKey);
+
+    CompletableFuture<String> createMultipartUpload(String objectKey);
+
+    String presignUploadPart(String objectKey, String uploadId, int partNumber, Duration expiration);
+
+    List<String> presignUploadParts(String objectKey, String uploadId, List<Integer> partNumbers, Duration expiration);
+
+    CompletableFuture<Void> completeMultipartUpload(String objectKey, String uploadId, List<CompletedPart> parts);
+
+    CompletableFuture<Void> abortMultipartUpload(String objectKey, String uploadId);
+
+    Iterable<PendingMultipartUpload> listMultipartUploads(String prefix);
+
+    // Stores content read from the stream; the calling thread blocks until the object is stored
+    void putObject(String objectKey, InputStream content, long contentLength, String contentType);
+
+    /**
+     * Opens the object, or the given range of it. With a validator the read is conditional and
+     * fails with 412 if the object no longer matches it.
+     */
+    ObjectContent getObject(String objectKey, ByteRange range, String ifMatch, Instant ifUnmodifiedSince);
+
+    boolean objectExists(String objectKey);
+
+    // Deletes up to 1,000 keys and returns key -> error for the ones that could not be deleted
+    Map<String, String> deleteObjects(List<String> objectKeys);
+
+    // The object's file when it lives on a local disk, so it can be sent without copying through the heap
+    default Path localPath(String objectKey) {
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.filedrive.storage;
+
+import lombok.Getter;
+
+/**
+ * A storage failure with the HTTP status the backend answered with (404 for a missing object or
+ * upload, 400 for a part that does not match, 412/416 for failed conditional or range reads).
+ */
+@Getter
+public class StorageException extends RuntimeException {
+
+    private final int statusCode;
+
+    public StorageException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public StorageException(int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    // Looks through wrapping exceptions (CompletionException, RuntimeException) for the status
+    public static int statusCodeOf(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StorageException storageException) {
+                return storageException.getStatusCode();
+            }
+        }
+        return 0;
+    }
+}
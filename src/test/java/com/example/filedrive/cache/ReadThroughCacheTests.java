@@ -0,0 +1,126 @@
+package com.example.filedrive.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadThroughCacheTests {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+    private final ReadThroughCache<String, String> cache = new ReadThroughCache<>(100, 60_000);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> cache.get("file-1", key -> {
+                calls.incrementAndGet();
+                await(release);
+                return "metadata";
+            })));
+        }
+        // Every other caller has to be waiting on the running load before it finishes
+        waitUntil(() -> cache.getCollapsedLoadCount() == CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("metadata", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals("metadata", cache.get("file-1", key -> "reloaded"));
+    }
+
+    @Test
+    void invalidationDuringLoadDropsTheLoadedValue() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> stale = executor.submit(() -> cache.get("file-1", key -> {
+            loading.countDown();
+            await(release);
+            return "before-write";
+        }));
+        await(loading);
+        cache.invalidate("file-1");
+        release.countDown();
+
+        // The caller that started the load still gets its value, but it is not kept
+        assertEquals("before-write", stale.get(10, TimeUnit.SECONDS));
+        assertEquals(0, cache.size());
+        assertEquals("after-write", cache.get("file-1", key -> "after-write"));
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    void nullResultsAreNotCached() {
+        assertNull(cache.get("missing", key -> null));
+        assertEquals("created", cache.get("missing", key -> "created"));
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    void loadFailuresReachEveryWaiterAndAreNotCached() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(executor.submit(() -> cache.get("file-1", key -> {
+                await(release);
+                throw failure;
+            })));
+        }
+        waitUntil(() -> cache.getCollapsedLoadCount() == CALLERS - 1);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals("recovered", cache.get("file-1", key -> "recovered"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for callers");
+            Thread.sleep(5);
+        }
+    }
+}
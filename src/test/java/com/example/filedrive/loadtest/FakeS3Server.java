@@ -0,0 +1,437 @@
+package com.example.filedrive.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the part of the S3 REST API that the application and its clients use:
+ * object PUT/GET/HEAD/DELETE (presigned or signed), multipart create/upload-part/complete/abort/list
+ * and DeleteObjects. Only path-style addressing is supported and signatures are not checked.
+ * Unless content is retained, objects keep only their length and ETag and read back as zeros,
+ * so long runs don't fill the heap.
+ */
+public class FakeS3Server implements AutoCloseable {
+
+    private static final String XMLNS = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final Pattern KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final Pattern PART = Pattern.compile(
+            "<Part>.*?<ETag>(.*?)</ETag>.*?<PartNumber>(\\d+)</PartNumber>.*?</Part>" +
+            "|<Part>.*?<PartNumber>(\\d+)</PartNumber>.*?<ETag>(.*?)</ETag>.*?</Part>", Pattern.DOTALL);
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d*)");
+    private static final DateTimeFormatter ISO_MILLIS = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean retainContent;
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+
+    private FakeS3Server(int threads, boolean retainContent) throws IOException {
+        this.retainContent = retainContent;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "fake-s3");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static FakeS3Server start(int threads, boolean retainContent) throws IOException {
+        FakeS3Server fake = new FakeS3Server(threads, retainContent);
+        fake.server.start();
+        return fake;
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public int getObjectCount() {
+        return objects.size();
+    }
+
+    public int getPendingUploadCount() {
+        return uploads.size();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            String path = exchange.getRequestURI().getPath();
+            int slash = path.indexOf('/', 1);
+            String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            byte[] body = readBody(exchange);
+
+            switch (exchange.getRequestMethod()) {
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")), body);
+                    } else {
+                        putObject(exchange, bucket, key, body);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        createUpload(exchange, bucket, key);
+                    } else if (query.containsKey("uploadId")) {
+                        completeUpload(exchange, bucket, key, query.get("uploadId"), body);
+                    } else if (query.containsKey("delete")) {
+                        deleteObjects(exchange, bucket, body);
+                    } else {
+                        sendError(exchange, 501, "NotImplemented", "Unsupported POST");
+                    }
+                }
+                case "GET" -> {
+                    if (key.isEmpty() && query.containsKey("uploads")) {
+                        listUploads(exchange, bucket, query.getOrDefault("prefix", ""));
+                    } else {
+                        getObject(exchange, bucket, key, false);
+                    }
+                }
+                case "HEAD" -> getObject(exchange, bucket, key, true);
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        abortUpload(exchange, query.get("uploadId"));
+                    } else {
+                        objects.remove(bucket + "/" + key);
+                        exchange.sendResponseHeaders(204, -1);
+                    }
+                }
+                default -> sendError(exchange, 405, "MethodNotAllowed", exchange.getRequestMethod());
+            }
+        } catch (Exception e) {
+            sendError(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String bucket, String key, byte[] body) throws IOException {
+        String eTag = quote(HexFormat.of().formatHex(md5(body)));
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        objects.put(bucket + "/" + key, new StoredObject(retainContent ? body : null, body.length, eTag,
+                contentType != null ? contentType : "application/octet-stream", Instant.now()));
+        exchange.getResponseHeaders().set("ETag", eTag);
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void getObject(HttpExchange exchange, String bucket, String key, boolean headOnly) throws IOException {
+        StoredObject object = objects.get(bucket + "/" + key);
+        if (object == null) {
+            if (headOnly) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                sendError(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            }
+            return;
+        }
+
+        long from = 0;
+        long to = object.length() - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range != null ? RANGE.matcher(range) : null;
+        if (matcher != null && matcher.matches() && object.length() > 0) {
+            from = Long.parseLong(matcher.group(1));
+            if (!matcher.group(2).isEmpty()) {
+                to = Math.min(to, Long.parseLong(matcher.group(2)));
+            }
+            if (from > to) {
+                sendError(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + to + "/" + object.length());
+        }
+
+        long length = object.length() == 0 ? 0 : to - from + 1;
+        exchange.getResponseHeaders().set("ETag", object.eTag());
+        exchange.getResponseHeaders().set("Content-Type", object.contentType());
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("Last-Modified",
+                DateTimeFormatter.RFC_1123_DATE_TIME.format(object.lastModified().atZone(ZoneOffset.UTC)));
+        if (headOnly) {
+            exchange.getResponseHeaders().set("Content-Length", Long.toString(object.length()));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length == 0) {
+            return;
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (object.content() != null) {
+                out.write(object.content(), (int) from, (int) length);
+            } else {
+                for (long remaining = length; remaining > 0; remaining -= ZEROS.length) {
+                    out.write(ZEROS, 0, (int) Math.min(remaining, ZEROS.length));
+                }
+            }
+        }
+    }
+
+    private void createUpload(HttpExchange exchange, String bucket, String key) throws IOException {
+        String uploadId = UUID.randomUUID().toString().replace("-", "");
+        uploads.put(uploadId, new Upload(bucket, key, uploadId, Instant.now()));
+        sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + XMLNS + "\">"
+                + "<Bucket>" + escape(bucket) + "</Bucket><Key>" + escape(key) + "</Key>"
+                + "<UploadId>" + uploadId + "</UploadId></InitiateMultipartUploadResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber, byte[] body) throws IOException {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+
+        byte[] md5 = md5(body);
+        String eTag = quote(HexFormat.of().formatHex(md5));
+        upload.parts.put(partNumber, new Part(retainContent ? body : null, body.length, eTag, md5));
+        exchange.getResponseHeaders().set("ETag", eTag);
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void completeUpload(HttpExchange exchange, String bucket, String key, String uploadId, byte[] body) throws IOException {
+        Upload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+
+        TreeMap<Integer, String> requested = new TreeMap<>();
+        Matcher matcher = PART.matcher(new String(body, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            if (matcher.group(2) != null) {
+                requested.put(Integer.parseInt(matcher.group(2)), unescape(matcher.group(1)));
+            } else {
+                requested.put(Integer.parseInt(matcher.group(3)), unescape(matcher.group(4)));
+            }
+        }
+        if (requested.isEmpty()) {
+            sendError(exchange, 400, "MalformedXML", "No parts in the request");
+            return;
+        }
+
+        ByteArrayOutputStream content = retainContent ? new ByteArrayOutputStream() : null;
+        ByteArrayOutputStream digests = new ByteArrayOutputStream();
+        long length = 0;
+        for (Map.Entry<Integer, String> entry : requested.entrySet()) {
+            Part part = upload.parts.get(entry.getKey());
+            if (part == null || !unquote(part.eTag()).equals(unquote(entry.getValue()))) {
+                sendError(exchange, 400, "InvalidPart", "Part " + entry.getKey() + " was not uploaded or its ETag differs");
+                return;
+            }
+            if (content != null) {
+                content.write(part.content());
+            }
+            digests.write(part.md5());
+            length += part.length();
+        }
+
+        String eTag = quote(HexFormat.of().formatHex(md5(digests.toByteArray())) + "-" + requested.size());
+        objects.put(bucket + "/" + key, new StoredObject(content != null ? content.toByteArray() : null, length, eTag,
+                "application/octet-stream", Instant.now()));
+        uploads.remove(uploadId);
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + XMLNS + "\">"
+                + "<Location>" + escape(endpoint() + "/" + bucket + "/" + key) + "</Location>"
+                + "<Bucket>" + escape(bucket) + "</Bucket><Key>" + escape(key) + "</Key>"
+                + "<ETag>" + escape(eTag) + "</ETag></CompleteMultipartUploadResult>");
+    }
+
+    private void abortUpload(HttpExchange exchange, String uploadId) throws IOException {
+        if (uploads.remove(uploadId) == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void listUploads(HttpExchange exchange, String bucket, String prefix) throws IOException {
+        StringBuilder xml = new StringBuilder("<ListMultipartUploadsResult xmlns=\"" + XMLNS + "\">")
+                .append("<Bucket>").append(escape(bucket)).append("</Bucket>")
+                .append("<Prefix>").append(escape(prefix)).append("</Prefix>")
+                .append("<MaxUploads>1000</MaxUploads><IsTruncated>false</IsTruncated>");
+        for (Upload upload : uploads.values()) {
+            if (upload.bucket.equals(bucket) && upload.key.startsWith(prefix)) {
+                xml.append("<Upload><Key>").append(escape(upload.key)).append("</Key>")
+                        .append("<UploadId>").append(upload.uploadId).append("</UploadId>")
+                        .append("<Initiated>").append(ISO_MILLIS.format(upload.initiated)).append("</Initiated>")
+                        .append("</Upload>");
+            }
+        }
+        sendXml(exchange, 200, xml.append("</ListMultipartUploadsResult>").toString());
+    }
+
+    private void deleteObjects(HttpExchange exchange, String bucket, byte[] body) throws IOException {
+        StringBuilder xml = new StringBuilder("<DeleteResult xmlns=\"" + XMLNS + "\">");
+        Matcher matcher = KEY.matcher(new String(body, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            String key = unescape(matcher.group(1));
+            objects.remove(bucket + "/" + key);
+            xml.append("<Deleted><Key>").append(escape(key)).append("</Key></Deleted>");
+        }
+        sendXml(exchange, 200, xml.append("</DeleteResult>").toString());
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw;
+        try (InputStream in = exchange.getRequestBody()) {
+            raw = in.readAllBytes();
+        }
+
+        // Streaming SigV4 (used by the SDK over plain HTTP) frames the payload in signed chunks
+        String contentSha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        boolean awsChunked = (contentSha != null && contentSha.startsWith("STREAMING-"))
+                || (encoding != null && encoding.contains("aws-chunked"));
+        return awsChunked ? decodeAwsChunked(raw) : raw;
+    }
+
+    static byte[] decodeAwsChunked(byte[] raw) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        int position = 0;
+        while (position < raw.length) {
+            int lineEnd = indexOfCrlf(raw, position);
+            if (lineEnd < 0) {
+                break;
+            }
+            String header = new String(raw, position, lineEnd - position, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt((semicolon >= 0 ? header.substring(0, semicolon) : header).trim(), 16);
+            if (size == 0) {
+                break;
+            }
+            position = lineEnd + 2;
+            out.write(raw, position, size);
+            position += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] data, int from) {
+        for (int i = from; i < data.length - 1; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + escape(message) + "</Message>"
+                + "<RequestId>" + UUID.randomUUID() + "</RequestId></Error>");
+    }
+
+    private static byte[] md5(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "");
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&quot;", "\"").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&").trim();
+    }
+
+    private record StoredObject(byte[] content, long length, String eTag, String contentType, Instant lastModified) {
+    }
+
+    private record Part(byte[] content, long length, String eTag, byte[] md5) {
+    }
+
+    private static final class Upload {
+        final String bucket;
+        final String key;
+        final String uploadId;
+        final Instant initiated;
+        final Map<Integer, Part> parts = new ConcurrentHashMap<>();
+
+        Upload(String bucket, String key, String uploadId, Instant initiated) {
+            this.bucket = bucket;
+            this.key = key;
+            this.uploadId = uploadId;
+            this.initiated = initiated;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.filedrive.loadtest;
+
+import com.example.filedrive.service.UserService;
+import com.google.firebase.FirebaseApp;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the application against {@link FakeS3Server} and embedded H2 and drives it with
+ * {@link LoadTestDriver}. Skipped unless run explicitly:
+ * {@code mvn test -Dtest=FileDriveLoadTest -Dloadtest=true [-Dloadtest.clients=2000 -Dloadtest.duration-seconds=60]}
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class FileDriveLoadTest {
+
+    private static FakeS3Server fakeS3;
+
+    @MockitoBean
+    private FirebaseApp firebaseApp;
+
+    @Autowired
+    private UserService userService;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${application.bucket.name}")
+    private String bucketName;
+
+    @DynamicPropertySource
+    static void fakeS3Endpoint(DynamicPropertyRegistry registry) throws IOException {
+        fakeS3 = FakeS3Server.start(Integer.getInteger("loadtest.fake-s3-threads", 256), false);
+        registry.add("application.s3.endpoint", fakeS3::endpoint);
+    }
+
+    @AfterAll
+    static void stopFakeS3() {
+        if (fakeS3 != null) {
+            fakeS3.close();
+        }
+    }
+
+    @Test
+    void sustainsConcurrentClients() throws InterruptedException {
+        LoadTestDriver.Settings settings = LoadTestDriver.Settings.fromSystemProperties();
+        List<String> userIds = registerUsers(userService, settings.users());
+
+        LoadTestDriver.Report report = new LoadTestDriver(settings, "http://127.0.0.1:" + port, bucketName, userIds).run();
+        System.out.println(report.format());
+        System.out.printf("fake S3: %d requests, %d objects, %d pending multipart uploads%n",
+                fakeS3.getRequestCount(), fakeS3.getObjectCount(), fakeS3.getPendingUploadCount());
+
+        assertTrue(report.getRequests() > 0, "No requests completed");
+        assertTrue(report.getErrorRate() <= settings.maxErrorRate(),
+                "Error rate " + report.getErrorRate() + " above " + settings.maxErrorRate());
+    }
+
+    static List<String> registerUsers(UserService userService, int users) {
+        List<String> userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            String uid = "loadtest-user-" + i;
+            userService.saveOrUpdateUser(uid, uid + "@example.com", "Load Test User " + i);
+            userIds.add(uid);
+        }
+        return userIds;
+    }
+}
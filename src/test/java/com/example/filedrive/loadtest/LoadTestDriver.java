@@ -0,0 +1,351 @@
+package com.example.filedrive.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates concurrent clients against a running application: single-part and multipart uploads
+ * (with batched part-status reports), cursor listings, shares and downloads, all with their S3 legs
+ * against the presigned URLs handed out. Each client is one platform thread issuing blocking
+ * requests back to back, so the client count is also the in-flight request count.
+ * Latency is recorded per endpoint, S3 legs included, and summarised by {@link Report}.
+ */
+public class LoadTestDriver {
+
+    private static final String API = "/api/v1/drive";
+
+    private final Settings settings;
+    private final String baseUrl;
+    private final String bucket;
+    private final List<String> userIds;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, String> firstErrors = new ConcurrentHashMap<>();
+
+    public LoadTestDriver(Settings settings, String baseUrl, String bucket, List<String> userIds) {
+        this.settings = settings;
+        this.baseUrl = baseUrl;
+        this.bucket = bucket;
+        this.userIds = userIds;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    public Report run() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> clients = new ArrayList<>(settings.clients());
+        for (int i = 0; i < settings.clients(); i++) {
+            String userId = userIds.get(i % userIds.size());
+            Thread client = new Thread(() -> runClient(userId, start), "loadtest-client-" + i);
+            client.setDaemon(true);
+            client.start();
+            clients.add(client);
+        }
+
+        long startNanos = System.nanoTime();
+        Instant deadline = Instant.now().plus(settings.duration());
+        start.countDown();
+        for (Thread client : clients) {
+            client.join(Math.max(1, Duration.between(Instant.now(), deadline).toMillis() + 60_000));
+        }
+        return new Report(Duration.ofNanos(System.nanoTime() - startNanos), timers, errors, firstErrors);
+    }
+
+    private void runClient(String userId, CountDownLatch start) {
+        ClientState state = new ClientState(userId);
+        try {
+            start.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long deadline = System.nanoTime() + settings.duration().toNanos();
+        while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+            try {
+                int roll = ThreadLocalRandom.current().nextInt(100);
+                if (roll < 25 || state.uploaded.isEmpty()) {
+                    singlePartUpload(state);
+                } else if (roll < 35) {
+                    multipartUpload(state);
+                } else if (roll < 60) {
+                    listFiles(state);
+                } else if (roll < 70 && !state.unshared.isEmpty()) {
+                    share(state);
+                } else {
+                    download(state);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // Already counted against the endpoint that failed; move on to the next action
+            }
+        }
+    }
+
+    private void singlePartUpload(ClientState state) throws Exception {
+        long size = settings.singlePartBytes();
+        JsonNode response = post("POST /upload/file", API + "/upload/file", Map.of(
+                "userId", state.userId,
+                "fileName", "load-" + System.nanoTime() + ".bin",
+                "fileType", "application/octet-stream",
+                "fileSize", size));
+
+        String presignedUrl = response.path("preSignedUrl").asText();
+        putObject("S3 PUT object", presignedUrl, size);
+
+        // Plays the part of the bucket notification Lambda
+        String key = URI.create(presignedUrl).getRawPath().substring(bucket.length() + 2);
+        Map<String, Object> record = Map.of(
+                "eventSource", "aws:s3",
+                "eventName", "ObjectCreated:Put",
+                "eventTime", Instant.now().toString(),
+                "s3", Map.of(
+                        "bucket", Map.of("name", bucket),
+                        "object", Map.of("key", key, "size", size)));
+        post("POST /s3/events", API + "/s3/events", Map.of("Records", List.of(record)));
+
+        // The response carries only the URL; the file id is the last segment of the key
+        state.uploaded(key.substring(key.lastIndexOf('/') + 1));
+    }
+
+    private void multipartUpload(ClientState state) throws Exception {
+        int parts = ThreadLocalRandom.current().nextInt(settings.minParts(), settings.maxParts() + 1);
+        long partSize = settings.partBytes();
+        JsonNode init = post("POST /upload/multipart/init", API + "/upload/multipart/init", Map.of(
+                "userId", state.userId,
+                "fileName", "load-multipart-" + System.nanoTime() + ".bin",
+                "fileType", "application/octet-stream",
+                "fileSize", parts * partSize,
+                "totalChunks", parts));
+        String fileId = init.path("fileId").asText();
+        String uploadId = init.path("uploadId").asText();
+
+        JsonNode urls = post("POST /upload/multipart/chunks", API + "/upload/multipart/chunks", Map.of(
+                "fileId", fileId,
+                "startChunk", 1,
+                "endChunk", parts));
+
+        List<Map<String, Object>> completed = new ArrayList<>(parts);
+        for (JsonNode part : urls.path("parts")) {
+            String eTag = putObject("S3 PUT part", part.path("uploadUrl").asText(), partSize);
+            completed.add(Map.of("chunkNumber", part.path("chunkNumber").asInt(), "etag", eTag));
+        }
+
+        post("POST /upload/multipart/parts/status", API + "/upload/multipart/parts/status", Map.of(
+                "fileId", fileId,
+                "parts", completed));
+        post("POST /upload/multipart/complete", API + "/upload/multipart/complete", Map.of(
+                "fileId", fileId,
+                "uploadId", uploadId,
+                "parts", completed));
+
+        state.uploaded(fileId);
+    }
+
+    private void listFiles(ClientState state) throws Exception {
+        get("GET /files/{userId}/page", API + "/files/" + state.userId + "/page?size=" + settings.pageSize());
+    }
+
+    private void share(ClientState state) throws Exception {
+        String fileId = state.unshared.pollFirst();
+        String recipient = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+        post("POST /file/share", API + "/file/share", Map.of(
+                "fileId", fileId,
+                "recipients", List.of(recipient)));
+    }
+
+    private void download(ClientState state) throws Exception {
+        String fileId = state.uploaded.get(ThreadLocalRandom.current().nextInt(state.uploaded.size()));
+        JsonNode response = get("GET /download/file/{fileId}", API + "/download/file/" + fileId);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(response.path("downloadUrl").asText()))
+                .timeout(settings.requestTimeout())
+                .GET()
+                .build();
+        send("S3 GET object", request, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private JsonNode post(String endpoint, String path, Object body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(settings.requestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        return objectMapper.readTree(send(endpoint, request, HttpResponse.BodyHandlers.ofByteArray()).body());
+    }
+
+    private JsonNode get(String endpoint, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(settings.requestTimeout())
+                .GET()
+                .build();
+        return objectMapper.readTree(send(endpoint, request, HttpResponse.BodyHandlers.ofByteArray()).body());
+    }
+
+    private String putObject(String endpoint, String presignedUrl, long size) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(presignedUrl))
+                .timeout(settings.requestTimeout())
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(new byte[(int) size]))
+                .build();
+        return send(endpoint, request, HttpResponse.BodyHandlers.discarding())
+                .headers().firstValue("ETag").orElse("");
+    }
+
+    private <T> HttpResponse<T> send(String endpoint, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws Exception {
+        Timer timer = timers.computeIfAbsent(endpoint, name -> Timer.builder("loadtest.request")
+                .tag("endpoint", name)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                // Percentiles over the whole run rather than a rolling window
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry));
+
+        long start = System.nanoTime();
+        HttpResponse<T> response;
+        try {
+            response = httpClient.send(request, handler);
+        } catch (Exception e) {
+            recordError(endpoint, e.getClass().getSimpleName() + ": " + e.getMessage());
+            throw e;
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (response.statusCode() >= 300) {
+            Object body = response.body();
+            String detail = body instanceof byte[] bytes ? new String(bytes) : "";
+            recordError(endpoint, "HTTP " + response.statusCode() + " " + detail);
+            throw new IllegalStateException(endpoint + " returned " + response.statusCode());
+        }
+        return response;
+    }
+
+    private void recordError(String endpoint, String detail) {
+        errors.computeIfAbsent(endpoint, name -> new LongAdder()).increment();
+        firstErrors.putIfAbsent(endpoint, detail.length() > 300 ? detail.substring(0, 300) : detail);
+    }
+
+    private static final class ClientState {
+        final String userId;
+        final List<String> uploaded = new ArrayList<>();
+        final Deque<String> unshared = new ArrayDeque<>();
+
+        ClientState(String userId) {
+            this.userId = userId;
+        }
+
+        void uploaded(String fileId) {
+            uploaded.add(fileId);
+            unshared.addLast(fileId);
+        }
+    }
+
+    /**
+     * Run parameters, read from {@code loadtest.*} system properties.
+     */
+    public record Settings(int clients, Duration duration, int users, long singlePartBytes, int minParts,
+                           int maxParts, long partBytes, int pageSize, Duration requestTimeout,
+                           double maxErrorRate) {
+
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("loadtest.clients", 2000),
+                    Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 60)),
+                    Integer.getInteger("loadtest.users", 500),
+                    Long.getLong("loadtest.single-part-bytes", 16 * 1024),
+                    Integer.getInteger("loadtest.min-parts", 2),
+                    Integer.getInteger("loadtest.max-parts", 20),
+                    Long.getLong("loadtest.part-bytes", 16 * 1024),
+                    Integer.getInteger("loadtest.page-size", 50),
+                    Duration.ofSeconds(Long.getLong("loadtest.request-timeout-seconds", 60)),
+                    Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01")));
+        }
+    }
+
+    public static final class Report {
+
+        private final Duration elapsed;
+        private final Map<String, Timer> timers;
+        private final Map<String, LongAdder> errors;
+        private final Map<String, String> firstErrors;
+
+        Report(Duration elapsed, Map<String, Timer> timers, Map<String, LongAdder> errors,
+               Map<String, String> firstErrors) {
+            this.elapsed = elapsed;
+            this.timers = new TreeMap<>(timers);
+            this.errors = new TreeMap<>(errors);
+            this.firstErrors = new LinkedHashMap<>(firstErrors);
+        }
+
+        public long getRequests() {
+            return timers.values().stream().mapToLong(Timer::count).sum() + getErrors();
+        }
+
+        public long getErrors() {
+            return errors.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        public double getErrorRate() {
+            long requests = getRequests();
+            return requests == 0 ? 0 : (double) getErrors() / requests;
+        }
+
+        public double getThroughput() {
+            return getRequests() / (elapsed.toMillis() / 1000.0);
+        }
+
+        public String format() {
+            double seconds = elapsed.toMillis() / 1000.0;
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%n%-40s %10s %8s %10s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+            for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+                Timer timer = entry.getValue();
+                HistogramSnapshot snapshot = timer.takeSnapshot();
+                Map<Double, Double> percentiles = new TreeMap<>();
+                for (ValueAtPercentile value : snapshot.percentileValues()) {
+                    percentiles.put(value.percentile(), value.value(TimeUnit.MILLISECONDS));
+                }
+                LongAdder failed = errors.get(entry.getKey());
+                out.append(String.format("%-40s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                        entry.getKey(), timer.count(), failed != null ? failed.sum() : 0,
+                        timer.count() / seconds,
+                        percentiles.getOrDefault(0.5, 0.0), percentiles.getOrDefault(0.99, 0.0),
+                        percentiles.getOrDefault(0.999, 0.0), timer.max(TimeUnit.MILLISECONDS)));
+            }
+            out.append(String.format("%ntotal: %d requests in %.1fs (%.1f req/s), %d errors (%.3f%%)%n",
+                    getRequests(), seconds, getRequests() / seconds, getErrors(), getErrorRate() * 100));
+            firstErrors.forEach((endpoint, detail) ->
+                    out.append(String.format("first error on %s: %s%n", endpoint, detail)));
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.filedrive.loadtest;
+
+import com.example.filedrive.FileDriveApplication;
+import com.example.filedrive.service.UserService;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the same {@link LoadTestDriver} load against platform-thread mode and then virtual-thread
+ * mode (the {@code virtual} profile), each on a fresh application and database, and prints both
+ * reports. Needs Java 21, so run it under the virtual-threads Maven profile:
+ * {@code mvn -Pvirtual-threads test -Dtest=ThreadModeComparisonLoadTest -Dloadtest=true -Dloadtest.clients=10000}
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@EnabledForJreRange(min = JRE.JAVA_21)
+class ThreadModeComparisonLoadTest {
+
+    @Test
+    void comparesPlatformAndVirtualThreads() throws IOException, InterruptedException {
+        // FirebaseConfig reuses an already initialized app; the load test never verifies tokens
+        if (FirebaseApp.getApps().isEmpty()) {
+            FirebaseApp.initializeApp(FirebaseOptions.builder()
+                    .setCredentials(GoogleCredentials.create(new AccessToken("loadtest", null)))
+                    .setProjectId("loadtest")
+                    .build());
+        }
+
+        LoadTestDriver.Settings settings = LoadTestDriver.Settings.fromSystemProperties();
+        LoadTestDriver.Report platform;
+        LoadTestDriver.Report virtual;
+        try (FakeS3Server fakeS3 = FakeS3Server.start(Integer.getInteger("loadtest.fake-s3-threads", 256), false)) {
+            platform = run(fakeS3, settings, false);
+            virtual = run(fakeS3, settings, true);
+        }
+
+        System.out.println("platform threads:" + platform.format());
+        System.out.println("virtual threads:" + virtual.format());
+        System.out.printf("%d clients: platform %.1f req/s, %.3f%% errors; virtual %.1f req/s, %.3f%% errors%n",
+                settings.clients(), platform.getThroughput(), platform.getErrorRate() * 100,
+                virtual.getThroughput(), virtual.getErrorRate() * 100);
+
+        assertTrue(virtual.getRequests() > 0, "No requests completed in virtual-thread mode");
+        assertTrue(virtual.getErrorRate() <= settings.maxErrorRate(),
+                "Virtual-thread error rate " + virtual.getErrorRate() + " above " + settings.maxErrorRate());
+    }
+
+    private static LoadTestDriver.Report run(FakeS3Server fakeS3, LoadTestDriver.Settings settings,
+                                             boolean virtualThreads) throws InterruptedException {
+        String mode = virtualThreads ? "virtual" : "platform";
+        SpringApplicationBuilder application = new SpringApplicationBuilder(FileDriveApplication.class)
+                .profiles(virtualThreads ? new String[]{"loadtest", "virtual"} : new String[]{"loadtest"})
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "application.s3.endpoint=" + fakeS3.endpoint(),
+                        "spring.datasource.url=jdbc:h2:mem:loadtest-" + mode
+                                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+
+        try (ConfigurableApplicationContext context = application.run()) {
+            List<String> userIds = FileDriveLoadTest.registerUsers(context.getBean(UserService.class), settings.users());
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String bucket = context.getEnvironment().getRequiredProperty("application.bucket.name");
+            return new LoadTestDriver(settings, "http://127.0.0.1:" + port, bucket, userIds).run();
+        }
+    }
+}
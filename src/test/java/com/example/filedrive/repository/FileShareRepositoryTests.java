@@ -0,0 +1,98 @@
+package com.example.filedrive.repository;
+
+import com.example.filedrive.dto.FileMetadataResponse;
+import com.example.filedrive.model.FileMetadata;
+import com.example.filedrive.model.FileShare;
+import com.example.filedrive.model.FileStatus;
+import com.example.filedrive.model.SharePermission;
+import com.example.filedrive.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+class FileShareRepositoryTests {
+
+    private static final String RECIPIENT = "recipient";
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private FileShareRepository fileShareRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int owner = 0; owner < 3; owner++) {
+            User user = new User();
+            user.setId("owner-" + owner);
+            user.setName("Owner " + owner);
+            user.setEmail("owner" + owner + "@example.com");
+            entityManager.persist(user);
+
+            for (int file = 0; file < 20; file++) {
+                FileMetadata fileMetadata = new FileMetadata();
+                fileMetadata.setFileId("file-" + owner + "-" + file);
+                fileMetadata.setUser(user);
+                fileMetadata.setFileName("report-" + file + ".pdf");
+                fileMetadata.setFileType("application/pdf");
+                fileMetadata.setFileSize(1024L * file);
+                fileMetadata.setFilePath("user/owner-" + owner + "/file-" + owner + "-" + file);
+                fileMetadata.setStatus(FileStatus.UPLOADED.toString());
+                entityManager.persist(fileMetadata);
+
+                FileShare fileShare = new FileShare();
+                fileShare.setUserId(RECIPIENT);
+                fileShare.setFileMetadata(fileMetadata);
+                fileShare.setPermission(SharePermission.READ);
+                fileShare.setCreatedAt(base.plusMinutes(owner * 20L + file));
+                entityManager.persist(fileShare);
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void sharedWithUserIsLoadedInOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<FileMetadataResponse> shared = fileShareRepository.findSharedWithUser(RECIPIENT, Pageable.unpaged());
+
+        assertEquals(60, shared.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void sharedWithUserIsPagedNewestFirst() {
+        List<FileMetadataResponse> firstPage = fileShareRepository.findSharedWithUser(RECIPIENT, PageRequest.of(0, 25));
+        List<FileMetadataResponse> lastPage = fileShareRepository.findSharedWithUser(RECIPIENT, PageRequest.of(2, 25));
+
+        assertEquals(25, firstPage.size());
+        assertEquals("file-2-19", firstPage.get(0).getFileId());
+        assertEquals(RECIPIENT, firstPage.get(0).getUserId());
+        assertEquals(10, lastPage.size());
+        assertEquals("file-0-0", lastPage.get(lastPage.size() - 1).getFileId());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.filedrive.search;
+
+import com.example.filedrive.dto.SearchUser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserSearchIndexTests {
+
+    private final UserSearchIndex index = new UserSearchIndex(null, 100);
+
+    @BeforeEach
+    void setUp() {
+        index.upsert("u1", "John Smith", "john.smith@example.com");
+        index.upsert("u2", "Anna Johnson", "anna@corp.io");
+        index.upsert("u3", "Bob Stone", "bstone@example.com");
+    }
+
+    @Test
+    void prefixMatchesRankBeforeInfixMatches() {
+        assertEquals(List.of("u1", "u2"), ids(index.search("john", 10)));
+    }
+
+    @Test
+    void matchesSubstringsLikeTheDatabaseFallback() {
+        assertEquals(List.of("u2"), ids(index.search("hnso", 10)));
+        assertEquals(List.of("u1"), ids(index.search("n smi", 10)));
+        assertEquals(List.of("u3"), ids(index.search("STONE@EX", 10)));
+        assertEquals(List.of("u2"), ids(index.search("rp", 10)));
+        assertTrue(index.search("xyz", 10).isEmpty());
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceInfixPostings() {
+        index.upsert("u2", "Anna Lee", "anna@corp.io");
+        assertTrue(index.search("hnso", 10).isEmpty());
+        assertEquals(List.of("u2"), ids(index.search("na le", 10)));
+
+        index.remove("u2");
+        assertTrue(index.search("rp", 10).isEmpty());
+        assertTrue(index.search("na le", 10).isEmpty());
+    }
+
+    @Test
+    void stopsAtTheLimit() {
+        assertEquals(1, index.search("example", 1).size());
+        assertEquals(2, index.search("example", 10).size());
+    }
+
+    private static List<String> ids(List<SearchUser> users) {
+        return users.stream().map(SearchUser::getUserId).toList();
+    }
+}
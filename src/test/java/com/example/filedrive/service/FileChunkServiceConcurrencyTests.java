@@ -0,0 +1,200 @@
+package com.example.filedrive.service;
+
+import com.example.filedrive.dto.MultipartUploadCompleteRequest;
+import com.example.filedrive.repository.FileChunkRepository;
+import com.example.filedrive.repository.UploadedPartRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({FileChunkService.class, PartStatusWriter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileChunkServiceConcurrencyTests {
+
+    private static final String FILE_ID = "stress-file";
+    private static final int THREADS = 64;
+    private static final int PARTS = 1024;
+    private static final int BATCH_PARTS = 16;
+
+    @Autowired
+    private FileChunkService fileChunkService;
+
+    @Autowired
+    private PartStatusWriter partStatusWriter;
+
+    @Autowired
+    private FileChunkRepository fileChunkRepository;
+
+    @Autowired
+    private UploadedPartRepository uploadedPartRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        fileChunkService.saveUploadState(FILE_ID, "upload-1", "user-1", "big.bin",
+                "application/octet-stream", PARTS * 5L * 1024 * 1024, PARTS);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        fileChunkService.removeUploadState(FILE_ID);
+    }
+
+    @Test
+    void concurrentSinglePartReportsAreNotLost() throws Exception {
+        runConcurrently(chunk -> () -> {
+            report(List.of(part(chunk, "etag-" + chunk)));
+            return null;
+        });
+
+        assertAllPartsRecorded("etag-");
+    }
+
+    @Test
+    void retransmittedPartsKeepCountAndReplaceETag() throws Exception {
+        runConcurrently(chunk -> () -> {
+            report(List.of(part(chunk, "first-" + chunk)));
+            return null;
+        });
+        runConcurrently(chunk -> () -> {
+            report(List.of(part(chunk, "second-" + chunk)));
+            return null;
+        });
+
+        assertAllPartsRecorded("second-");
+    }
+
+    @Test
+    void concurrentBatchedReportsAreNotLost() throws Exception {
+        runConcurrently(chunk -> () -> {
+            if ((chunk - 1) % BATCH_PARTS == 0) {
+                List<MultipartUploadCompleteRequest.ChunkDetail> parts = new ArrayList<>();
+                for (int n = chunk; n < chunk + BATCH_PARTS && n <= PARTS; n++) {
+                    parts.add(part(n, "batched-" + n));
+                }
+                report(parts);
+            }
+            return null;
+        });
+
+        assertAllPartsRecorded("batched-");
+    }
+
+    @Test
+    void writersOnSeveralInstancesDoNotLoseParts() throws Exception {
+        // A second writer stands in for another app instance: both flush into the same upload row at once
+        PartStatusWriter otherInstance = new PartStatusWriter(jdbcTemplate, transactionManager, PARTS, 0, 4);
+        otherInstance.start();
+        try {
+            runConcurrently(chunk -> () -> {
+                PartStatusWriter writer = chunk % 2 == 0 ? partStatusWriter : otherInstance;
+                assertTrue(writer.submit(FILE_ID, List.of(part(chunk, "etag-" + chunk))).get(30, TimeUnit.SECONDS));
+                return null;
+            });
+        } finally {
+            otherInstance.stop();
+        }
+
+        assertAllPartsRecorded("etag-");
+    }
+
+    @Test
+    void partsBeyondTotalChunksAreRejected() throws Exception {
+        runConcurrently(chunk -> () -> {
+            if (chunk < PARTS) {
+                report(List.of(part(chunk, "etag-" + chunk)));
+            }
+            return null;
+        });
+
+        // Parts 1..N-1 plus N+1: the extra part must neither be stored nor make the upload look complete
+        CompletableFuture<Boolean> beyond = partStatusWriter.submit(FILE_ID, List.of(part(PARTS + 1, "etag-beyond")));
+        ExecutionException error = assertThrows(ExecutionException.class, () -> beyond.get(30, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+
+        assertEquals(PARTS - 1, fileChunkRepository.findById(FILE_ID).orElseThrow().getReceivedChunks());
+        assertFalse(fileChunkService.isUploadComplete(FILE_ID));
+        assertEquals(PARTS - 1, fileChunkService.getCompletedChunks(FILE_ID).size());
+    }
+
+    private void report(List<MultipartUploadCompleteRequest.ChunkDetail> parts) throws Exception {
+        assertTrue(partStatusWriter.submit(FILE_ID, parts).get(30, TimeUnit.SECONDS));
+    }
+
+    private static MultipartUploadCompleteRequest.ChunkDetail part(int chunkNumber, String eTag) {
+        MultipartUploadCompleteRequest.ChunkDetail part = new MultipartUploadCompleteRequest.ChunkDetail();
+        part.setChunkNumber(chunkNumber);
+        part.setETag(eTag);
+        return part;
+    }
+
+    private void runConcurrently(IntFunction<Callable<Void>> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int chunk = 1; chunk <= PARTS; chunk++) {
+            Callable<Void> report = task.apply(chunk);
+            futures.add(executor.submit(() -> {
+                start.await();
+                return report.call();
+            }));
+        }
+
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    private void assertAllPartsRecorded(String eTagPrefix) {
+        assertEquals(PARTS, fileChunkRepository.findById(FILE_ID).orElseThrow().getReceivedChunks());
+        assertTrue(fileChunkService.isUploadComplete(FILE_ID));
+        assertEquals(PARTS, uploadedPartRepository.count());
+
+        List<CompletedPart> parts = fileChunkService.getCompletedChunks(FILE_ID);
+        assertEquals(PARTS, parts.size());
+        for (int i = 0; i < PARTS; i++) {
+            assertEquals(i + 1, parts.get(i).partNumber());
+            assertEquals(eTagPrefix + (i + 1), parts.get(i).eTag());
+        }
+    }
+}
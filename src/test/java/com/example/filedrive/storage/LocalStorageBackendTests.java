@@ -0,0 +1,300 @@
+package com.example.filedrive.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalStorageBackendTests {
+
+    private static final String BASE_URL = "http://localhost:8080";
+    private static final String SECRET = "test-secret";
+    private static final long MMAP_THRESHOLD = 4 * 1024 * 1024;
+    private static final String KEY = "user/user-1/file-1";
+
+    @TempDir
+    Path root;
+
+    private ExecutorService ioExecutor;
+    private LocalStorageBackend storage;
+
+    @BeforeEach
+    void setUp() {
+        ioExecutor = Executors.newSingleThreadExecutor();
+        storage = backend(SECRET);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ioExecutor.shutdownNow();
+    }
+
+    @Test
+    void signedTokenVerifies() {
+        LocalStorageBackend.Grant grant = storage.verify(token(storage.presignUpload("user-1/report.pdf", Duration.ofMinutes(5), "abc=")));
+
+        assertEquals(LocalStorageBackend.Operation.PUT_OBJECT, grant.operation());
+        assertEquals("user-1/report.pdf", grant.objectKey());
+        assertEquals("abc=", grant.checksumSha256());
+        assertNull(grant.uploadId());
+    }
+
+    @Test
+    void tamperedTokenIsRejected() {
+        String token = token(storage.presignDownload("user-1/report.pdf", Duration.ofMinutes(5)));
+        int dot = token.indexOf('.');
+        String payload = new String(Base64.getUrlDecoder().decode(token.substring(0, dot)), StandardCharsets.UTF_8);
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replace("user-1/", "user-2/").getBytes(StandardCharsets.UTF_8))
+                + token.substring(dot);
+
+        assertForbidden(forged);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        assertForbidden(token(storage.presignDownload("user-1/report.pdf", Duration.ofSeconds(-1))));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertForbidden("");
+        assertForbidden("no-separator");
+        assertForbidden("!!!.###");
+        assertForbidden(".");
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        String token = token(backend("other-secret").presignDownload("user-1/report.pdf", Duration.ofMinutes(5)));
+
+        assertForbidden(token);
+    }
+
+    @Test
+    void keysOutsideTheStorageRootAreRejected() {
+        for (String key : new String[] {"../escape", "user-1/../../escape", "..", "user-1/..", ""}) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> storage.presignUpload(key, Duration.ofMinutes(5), null), key);
+            assertThrows(IllegalArgumentException.class, () -> storage.localPath(key), key);
+        }
+    }
+
+    @Test
+    void objectUrlDoesNotExposeTheStorageRoot() {
+        assertEquals("local:user-1/report.pdf", storage.objectUrl("user-1/report.pdf"));
+    }
+
+    @Test
+    void partsAreAssembledInPartNumberOrder() throws Exception {
+        // Larger than the 256 KiB copy buffer, so both writing and concatenating take several rounds
+        byte[] first = randomBytes(1, 700 * 1024);
+        byte[] second = randomBytes(2, 300 * 1024 + 7);
+        byte[] third = randomBytes(3, 1);
+        String uploadId = storage.createMultipartUpload(KEY).join();
+
+        // Parts arrive out of order, as concurrent clients send them
+        String thirdETag = writePart(uploadId, 3, third);
+        String firstETag = writePart(uploadId, 1, first);
+        String secondETag = writePart(uploadId, 2, second);
+        storage.completeMultipartUpload(KEY, uploadId, List.of(
+                completedPart(2, secondETag), completedPart(3, thirdETag), completedPart(1, firstETag))).join();
+
+        assertArrayEquals(concat(first, second, third), read(storage, null));
+        assertFalse(storage.listMultipartUploads(null).iterator().hasNext());
+    }
+
+    @Test
+    void completionUsesThePartWithTheGivenETag() throws Exception {
+        String uploadId = storage.createMultipartUpload(KEY).join();
+        writePart(uploadId, 1, bytes("stale"));
+        String retransmitted = writePart(uploadId, 1, bytes("fresh"));
+
+        storage.completeMultipartUpload(KEY, uploadId, List.of(completedPart(1, retransmitted))).join();
+
+        assertArrayEquals(bytes("fresh"), read(storage, null));
+    }
+
+    @Test
+    void completionRejectsPartsThatWereNotUploaded() {
+        String uploadId = storage.createMultipartUpload(KEY).join();
+        writePart(uploadId, 1, bytes("part one"));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> storage.completeMultipartUpload(KEY, uploadId,
+                List.of(completedPart(1, "\"0123456789abcdef0123456789abcdef\""))).join());
+        assertEquals(400, StorageException.statusCodeOf(e));
+        assertFalse(storage.objectExists(KEY));
+    }
+
+    @Test
+    void abortRemovesTheUploadAndItsParts() throws Exception {
+        String uploadId = storage.createMultipartUpload(KEY).join();
+        writePart(uploadId, 1, randomBytes(4, 64 * 1024));
+
+        storage.abortMultipartUpload(KEY, uploadId).join();
+
+        assertFalse(storage.listMultipartUploads(null).iterator().hasNext());
+        assertTrue(isEmpty(root.resolve("uploads")));
+        StorageException e = assertThrows(StorageException.class, () -> writePart(uploadId, 2, bytes("late")));
+        assertEquals(404, e.getStatusCode());
+        CompletionException again = assertThrows(CompletionException.class,
+                () -> storage.abortMultipartUpload(KEY, uploadId).join());
+        assertEquals(404, StorageException.statusCodeOf(again));
+    }
+
+    @Test
+    void rejectedWritesLeaveNothingBehind() throws Exception {
+        byte[] content = bytes("content");
+        String wrongChecksum = Base64.getEncoder().encodeToString(new byte[32]);
+
+        StorageException mismatch = assertThrows(StorageException.class,
+                () -> storage.writeObject(KEY, new ByteArrayInputStream(content), content.length, wrongChecksum));
+        assertEquals(400, mismatch.getStatusCode());
+        StorageException truncated = assertThrows(StorageException.class,
+                () -> storage.writeObject(KEY, new ByteArrayInputStream(content), content.length + 1, null));
+        assertEquals(400, truncated.getStatusCode());
+
+        assertFalse(storage.objectExists(KEY));
+        assertTrue(isEmpty(root.resolve("tmp")));
+    }
+
+    @Test
+    void smallReadsAreMappedAndLargeReadsAreStreamed() throws Exception {
+        LocalStorageBackend smallThreshold = backend(SECRET, 1024);
+        byte[] content = randomBytes(5, 8 * 1024);
+        smallThreshold.writeObject(KEY, new ByteArrayInputStream(content), content.length, null);
+
+        try (ObjectContent small = smallThreshold.getObject(KEY, new ByteRange(0L, 1023L), null, null);
+             ObjectContent large = smallThreshold.getObject(KEY, null, null, null)) {
+            assertEquals("MappedInputStream", small.content().getClass().getSimpleName());
+            assertEquals("ChannelRangeInputStream", large.content().getClass().getSimpleName());
+            assertArrayEquals(Arrays.copyOf(content, 1024), small.content().readAllBytes());
+            assertArrayEquals(content, large.content().readAllBytes());
+        }
+    }
+
+    @Test
+    void rangeReadsReturnTheRequestedBytesFromBothReadPaths() throws Exception {
+        byte[] content = randomBytes(6, 10_000);
+        // Threshold 0 streams every read, the default maps every read of this object
+        for (LocalStorageBackend backend : List.of(storage, backend(SECRET, 0))) {
+            backend.writeObject(KEY, new ByteArrayInputStream(content), content.length, null);
+
+            assertRange(backend, content, new ByteRange(0L, 0L), 0, 0);
+            assertRange(backend, content, new ByteRange(0L, 99L), 0, 99);
+            assertRange(backend, content, new ByteRange(5000L, 5099L), 5000, 5099);
+            assertRange(backend, content, new ByteRange(9999L, null), 9999, 9999);
+            assertRange(backend, content, new ByteRange(9990L, 20_000L), 9990, 9999);
+            assertRange(backend, content, new ByteRange(null, 1L), 9999, 9999);
+
+            StorageException e = assertThrows(StorageException.class,
+                    () -> backend.getObject(KEY, new ByteRange(10_000L, null), null, null));
+            assertEquals(416, e.getStatusCode());
+        }
+    }
+
+    @Test
+    void conditionalReadsFailOnceTheObjectChanged() throws Exception {
+        storage.writeObject(KEY, new ByteArrayInputStream(bytes("v1")), 2, null);
+        String eTag;
+        try (ObjectContent object = storage.getObject(KEY, null, null, null)) {
+            eTag = object.eTag();
+        }
+        storage.writeObject(KEY, new ByteArrayInputStream(bytes("v2!")), 3, null);
+
+        StorageException e = assertThrows(StorageException.class, () -> storage.getObject(KEY, null, eTag, null));
+        assertEquals(412, e.getStatusCode());
+        StorageException missing = assertThrows(StorageException.class,
+                () -> storage.getObject("user/user-1/missing", null, null, null));
+        assertEquals(404, missing.getStatusCode());
+    }
+
+    private LocalStorageBackend backend(String secret) {
+        return backend(secret, MMAP_THRESHOLD);
+    }
+
+    private LocalStorageBackend backend(String secret, long mmapThresholdBytes) {
+        return new LocalStorageBackend(root.toString(), BASE_URL, secret, mmapThresholdBytes, ioExecutor);
+    }
+
+    private String writePart(String uploadId, int partNumber, byte[] content) {
+        return storage.writePart(KEY, uploadId, partNumber, new ByteArrayInputStream(content), content.length);
+    }
+
+    private static void assertRange(LocalStorageBackend backend, byte[] content, ByteRange range, int start, int end)
+            throws IOException {
+        try (ObjectContent object = backend.getObject(KEY, range, null, null)) {
+            assertEquals(end - start + 1L, object.contentLength());
+            assertEquals("bytes " + start + "-" + end + "/" + content.length, object.contentRange());
+            assertArrayEquals(Arrays.copyOfRange(content, start, end + 1), object.content().readAllBytes());
+        }
+    }
+
+    private static byte[] read(LocalStorageBackend backend, ByteRange range) throws IOException {
+        try (ObjectContent object = backend.getObject(KEY, range, null, null); InputStream content = object.content()) {
+            return content.readAllBytes();
+        }
+    }
+
+    private static CompletedPart completedPart(int partNumber, String eTag) {
+        return CompletedPart.builder().partNumber(partNumber).eTag(eTag).build();
+    }
+
+    private static byte[] randomBytes(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean isEmpty(Path dir) throws IOException {
+        try (Stream<Path> entries = Files.list(dir)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+
+    private static String token(String url) {
+        return url.substring((BASE_URL + LocalStorageBackend.TOKEN_PATH).length());
+    }
+
+    private void assertForbidden(String token) {
+        StorageException e = assertThrows(StorageException.class, () -> storage.verify(token));
+        assertEquals(403, e.getStatusCode());
+    }
+}